@@ -0,0 +1,145 @@
+package com.velp.application;
+
+import com.velp.domain.model.SubtitleLine;
+import com.velp.domain.model.TranslationStats;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+/**
+ * Packs the partial tail batches of concurrently translating tasks into shared full batches.
+ *
+ * Every task's last batch is usually short (a 40-line video sends 30 + 10 lines), and a bulk
+ * import of many short videos would otherwise pay one provider round trip per tail. Tails are
+ * held for at most the linger time, then sent together; identical source lines across tasks
+ * are sent once. Each contributor is completed (or failed) with the shared batch.
+ */
+class BatchCoalescer {
+
+    private final int batchSize;
+    private final long lingerMs;
+    private final Executor executor;
+    private final BiConsumer<List<SubtitleLine>, TranslationStats> translator;
+    private final ScheduledExecutorService timer;
+
+    private final Object lock = new Object();
+    private List<Contribution> pending = new ArrayList<>();
+    private int pendingLines;
+    private ScheduledFuture<?> lingerFlush;
+
+    BatchCoalescer(int batchSize, long lingerMs, Executor executor, BiConsumer<List<SubtitleLine>, TranslationStats> translator) {
+        this.batchSize = batchSize;
+        this.lingerMs = lingerMs;
+        this.executor = executor;
+        this.translator = translator;
+        this.timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "translation-coalescer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private record Contribution(List<SubtitleLine> lines, TranslationStats stats, CompletableFuture<Void> done) {}
+
+    CompletableFuture<Void> submit(List<SubtitleLine> lines, TranslationStats stats) {
+        Contribution contribution = new Contribution(lines, stats, new CompletableFuture<>());
+        List<Contribution> overflow = null;
+        List<Contribution> full = null;
+        synchronized (lock) {
+            if (pendingLines + lines.size() > batchSize && !pending.isEmpty()) {
+                overflow = drain();
+            }
+            pending.add(contribution);
+            pendingLines += lines.size();
+            if (pendingLines >= batchSize) {
+                full = drain();
+            } else if (lingerFlush == null) {
+                lingerFlush = timer.schedule(this::flush, lingerMs, TimeUnit.MILLISECONDS);
+            }
+        }
+        dispatch(overflow);
+        dispatch(full);
+        return contribution.done();
+    }
+
+    void shutdown() {
+        timer.shutdownNow();
+        List<Contribution> left;
+        synchronized (lock) {
+            left = drain();
+        }
+        for (Contribution contribution : left) {
+            contribution.done().completeExceptionally(new IllegalStateException("Translation service is shutting down"));
+        }
+    }
+
+    private void flush() {
+        List<Contribution> ready;
+        synchronized (lock) {
+            ready = drain();
+        }
+        dispatch(ready);
+    }
+
+    // Caller holds the lock
+    private List<Contribution> drain() {
+        List<Contribution> drained = pending;
+        pending = new ArrayList<>();
+        pendingLines = 0;
+        if (lingerFlush != null) {
+            lingerFlush.cancel(false);
+            lingerFlush = null;
+        }
+        return drained;
+    }
+
+    private void dispatch(List<Contribution> contributions) {
+        if (contributions == null || contributions.isEmpty()) {
+            return;
+        }
+        try {
+            executor.execute(() -> translateShared(contributions));
+        } catch (RuntimeException e) {
+            contributions.forEach(contribution -> contribution.done().completeExceptionally(e));
+        }
+    }
+
+    private void translateShared(List<Contribution> contributions) {
+        // One representative line per distinct source text; the others copy its translation
+        Map<String, SubtitleLine> representatives = new LinkedHashMap<>();
+        for (Contribution contribution : contributions) {
+            for (SubtitleLine line : contribution.lines()) {
+                representatives.computeIfAbsent(line.getEn(), en -> new SubtitleLine(line.getStartTime(), line.getEndTime(), en, null));
+            }
+        }
+        List<SubtitleLine> batch = new ArrayList<>(representatives.values());
+        TranslationStats shared = new TranslationStats();
+        try {
+            translator.accept(batch, shared);
+        } catch (Throwable e) {
+            // Contributors block on their futures, so every failure must reach them, Errors included
+            contributions.forEach(contribution -> contribution.done().completeExceptionally(e));
+            return;
+        }
+        int totalLines = contributions.stream().mapToInt(contribution -> contribution.lines().size()).sum();
+        for (Contribution contribution : contributions) {
+            for (SubtitleLine line : contribution.lines()) {
+                String translated = representatives.get(line.getEn()).getCn();
+                if (translated != null && !translated.isEmpty()) {
+                    line.setCn(translated);
+                }
+            }
+            contribution.stats().recordSharedBatch(shared, contribution.lines().size(), totalLines);
+            contribution.done().complete(null);
+        }
+    }
+}
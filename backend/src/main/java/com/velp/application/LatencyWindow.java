@@ -0,0 +1,40 @@
+package com.velp.application;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-size ring of the most recent latency samples for one provider.
+ */
+class LatencyWindow {
+
+    private final long[] samples;
+    private int next;
+    private int count;
+
+    LatencyWindow(int capacity) {
+        this.samples = new long[capacity];
+    }
+
+    synchronized void record(long latencyMs) {
+        samples[next] = latencyMs;
+        next = (next + 1) % samples.length;
+        count = Math.min(count + 1, samples.length);
+    }
+
+    synchronized int size() {
+        return count;
+    }
+
+    /**
+     * Nearest-rank percentile over the current window, e.g. {@code percentile(0.95)} for p95.
+     */
+    synchronized long percentile(double quantile) {
+        if (count == 0) {
+            return 0;
+        }
+        long[] sorted = Arrays.copyOf(samples, count);
+        Arrays.sort(sorted);
+        int rank = (int) Math.ceil(Math.min(1.0, Math.max(0.0, quantile)) * count) - 1;
+        return sorted[Math.max(0, rank)];
+    }
+}
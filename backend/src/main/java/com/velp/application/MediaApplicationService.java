@@ -1,62 +1,301 @@
 package com.velp.application;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.velp.common.constants.AppConstants;
-import com.velp.domain.model.SubtitleLine;
+import com.velp.domain.model.StageTrace;
+import com.velp.domain.model.SubtitleIndex;
+import com.velp.domain.model.TaskCheckpoint;
+import com.velp.domain.model.TaskTrace;
+import com.velp.domain.model.Transcript;
+import com.velp.domain.model.TranslationStats;
 import com.velp.domain.repository.MediaRepository;
+import com.velp.domain.service.TaskQueue;
 import com.velp.domain.service.TranslationService;
 import com.velp.infrastructure.external.YtDlpClient;
+import com.velp.infrastructure.metrics.PipelineMetrics;
 import com.velp.infrastructure.parser.SubtitleFileParser;
-import com.velp.interfaces.rest.dto.CourseDetailResponse;
+import com.velp.infrastructure.parser.TranscriptJsonCodec;
+import com.velp.infrastructure.search.SubtitleSearchIndex;
+import com.velp.infrastructure.storage.MediaKeys;
+import com.velp.infrastructure.storage.StorageManager;
+import com.velp.interfaces.rest.dto.BulkTaskItem;
+import com.velp.interfaces.rest.dto.BulkTaskResponse;
+import com.velp.interfaces.rest.dto.SearchHitDto;
+import com.velp.interfaces.rest.dto.SearchResponse;
 import com.velp.interfaces.rest.dto.SubtitleLineDto;
+import com.velp.interfaces.rest.dto.SubtitleWindowResponse;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.scheduling.annotation.Async;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
-import java.util.stream.Collectors;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Slf4j
 @Service
 public class MediaApplicationService {
 
+    private static final long CLAIM_SETTLE_MS = 2000;
+
     @Value("${velp.storage.path:downloads}")
     private String storagePath;
 
+    @Value("${velp.task.checkpoint-interval-seconds:10}")
+    private int checkpointIntervalSeconds;
+
+    @Value("${velp.search.max-results:100}")
+    private int maxSearchResults;
+
+    @Value("${velp.bulk.max-videos:500}")
+    private int maxBulkVideos;
+
     private final MediaRepository mediaRepository;
     private final YtDlpClient ytDlpClient;
     private final SubtitleFileParser subtitleParser;
     private final TranslationService translationService;
+    private final TaskQueue taskQueue;
+    private final PipelineMetrics metrics;
+    private final TranscriptJsonCodec transcriptCodec;
+    private final SubtitleSearchIndex searchIndex;
+    private final StorageManager storageManager;
+
+    // Recently served subtitle tracks, so windowed reads do not re-parse subs.json on every request
+    private final Map<String, CachedIndex> subtitleIndexCache = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CachedIndex> eldest) {
+            return size() > AppConstants.Storage.SUBTITLE_INDEX_CACHE_SIZE;
+        }
+    };
 
-    public MediaApplicationService(MediaRepository mediaRepository, YtDlpClient ytDlpClient, SubtitleFileParser subtitleParser, TranslationService translationService) {
+    public MediaApplicationService(MediaRepository mediaRepository, YtDlpClient ytDlpClient, SubtitleFileParser subtitleParser, TranslationService translationService, TaskQueue taskQueue, PipelineMetrics metrics, TranscriptJsonCodec transcriptCodec, SubtitleSearchIndex searchIndex, StorageManager storageManager) {
         this.mediaRepository = mediaRepository;
         this.ytDlpClient = ytDlpClient;
         this.subtitleParser = subtitleParser;
         this.translationService = translationService;
+        this.taskQueue = taskQueue;
+        this.metrics = metrics;
+        this.transcriptCodec = transcriptCodec;
+        this.searchIndex = searchIndex;
+        this.storageManager = storageManager;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startWorkers() {
+        taskQueue.start(new TaskQueue.TaskHandler() {
+            @Override
+            public void process(TaskQueue.TaskJob job) {
+                processVideoAsync(job.taskId(), job.url(), job.title());
+            }
+
+            @Override
+            public void abandon(TaskQueue.TaskJob job, String reason) {
+                mediaRepository.saveTaskStatus(job.taskId(), AppConstants.TaskStatus.FAILED, 0, null, "错误: " + reason, job.url(), job.title());
+            }
+        });
+        if (!taskQueue.durable()) {
+            resumeInterruptedTasks();
+        }
+    }
+
+    /**
+     * The local queue does not survive a restart, so tasks that were still pending or
+     * processing when the JVM stopped are queued again; their checkpoints let them skip
+     * the stages that had already finished.
+     */
+    private void resumeInterruptedTasks() {
+        for (MediaRepository.TaskEntry task : mediaRepository.getAllTasks()) {
+            if (AppConstants.TaskStatus.PENDING.equals(task.status()) || AppConstants.TaskStatus.PROCESSING.equals(task.status())) {
+                log.info("Resuming interrupted task {} ({})", task.taskId(), task.url());
+                requeue(task.taskId(), task.url(), task.title(), AppConstants.Messages.RESUMING);
+            }
+        }
+    }
+
+    private void requeue(String taskId, String url, String title, String message) {
+        mediaRepository.saveTaskStatus(taskId, AppConstants.TaskStatus.PENDING, 0, null, message, url, title);
+        taskQueue.enqueue(new TaskQueue.TaskJob(taskId, url, title));
     }
 
     public String submitTask(String url) {
-        // Check if a successful task already exists for this URL
+        String existingTaskId = reuseExistingTask(url, mediaRepository.getAllTasks());
+        if (existingTaskId != null) {
+            return existingTaskId;
+        }
+
+        String taskId = UUID.randomUUID().toString();
+        String claimedBy = claimVideo(taskId, url);
+        if (claimedBy != null) {
+            return claimedBy;
+        }
+        // Queued right after the claim and without a title, which the worker looks up: a crash
+        // during the slow metadata call must not leave a claimed task that no queue entry resumes
+        enqueueNewTask(taskId, url, null);
+        return taskId;
+    }
+
+    /**
+     * Submits every video of the given playlists and video URLs. All inputs are expanded with a
+     * single flat-playlist extraction, which also yields the titles, so no per-video metadata
+     * call is made. Videos that already have a task, or appear twice in the request, reuse it.
+     */
+    public BulkTaskResponse submitBulk(List<String> urls) {
+        List<YtDlpClient.VideoEntry> entries;
+        try {
+            // One past the cap is enough to tell that the request is too large
+            entries = ytDlpClient.listVideos(urls, maxBulkVideos + 1);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Playlist extraction interrupted", e);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to list videos: " + e.getMessage(), e);
+        }
+        if (entries.size() > maxBulkVideos) {
+            throw new IllegalArgumentException("Too many videos: more than " + maxBulkVideos + " requested");
+        }
+
         List<MediaRepository.TaskEntry> existingTasks = mediaRepository.getAllTasks();
+        Map<String, String> taskBySource = new HashMap<>();
+        List<BulkTaskItem> items = new ArrayList<>(entries.size());
+        int created = 0;
+        for (YtDlpClient.VideoEntry entry : entries) {
+            String contentKey = MediaKeys.videoIdFor(entry.url());
+            String source = contentKey != null ? contentKey : entry.url();
+            String taskId = taskBySource.get(source);
+            if (taskId == null) {
+                taskId = reuseExistingTask(entry.url(), existingTasks);
+            }
+            boolean isNew = false;
+            if (taskId == null) {
+                String newTaskId = UUID.randomUUID().toString();
+                taskId = claimVideo(newTaskId, entry.url());
+                if (taskId == null) {
+                    taskId = newTaskId;
+                    isNew = true;
+                    enqueueNewTask(taskId, entry.url(), entry.title() != null ? entry.title() : "Unknown Video");
+                    created++;
+                }
+            }
+            taskBySource.put(source, taskId);
+            items.add(new BulkTaskItem(entry.url(), entry.title(), taskId, isNew));
+        }
+        log.info("Bulk submission expanded {} inputs into {} videos ({} new tasks)", urls.size(), entries.size(), created);
+        return new BulkTaskResponse(entries.size(), created, items);
+    }
+
+    private void enqueueNewTask(String taskId, String url, String title) {
+        mediaRepository.saveTaskStatus(taskId, AppConstants.TaskStatus.PENDING, 0, null, null, url, title);
+        taskQueue.enqueue(new TaskQueue.TaskJob(taskId, url, title));
+    }
+
+    /**
+     * Claims the video's content-addressed directory for a new task, so concurrent submissions
+     * of one video (from any replica) cannot create two tasks writing into the same directory.
+     * Returns null when {@code taskId} may go ahead, otherwise the task that covers the video.
+     * A claim whose holder was deleted, or failed for good, is taken over.
+     */
+    private String claimVideo(String taskId, String url) {
+        String contentKey = MediaKeys.videoIdFor(url);
+        if (contentKey == null) {
+            // Not content-addressed: the task gets a directory of its own
+            return null;
+        }
+        while (true) {
+            String holder = mediaRepository.claimVideo(contentKey, taskId);
+            if (holder.equals(taskId)) {
+                return null;
+            }
+            Optional<MediaRepository.TaskStatus> status = awaitTaskStatus(holder);
+            if (status.isPresent()) {
+                MediaRepository.TaskStatus s = status.get();
+                String reused = reuseExistingTask(url, List.of(new MediaRepository.TaskEntry(
+                        holder, s.status(), s.progress(), s.videoId(), s.url(), s.title(), s.createdAt())));
+                if (reused != null) {
+                    return reused;
+                }
+            }
+            if (mediaRepository.replaceVideoClaim(contentKey, holder, taskId)) {
+                log.info("Task {} took over video {} from task {}", taskId, contentKey, holder);
+                return null;
+            }
+        }
+    }
+
+    /**
+     * The claim holder saves its status right after claiming; give it a moment to appear
+     * before treating the claim as left behind by a crashed submission.
+     */
+    private Optional<MediaRepository.TaskStatus> awaitTaskStatus(String taskId) {
+        long deadline = System.currentTimeMillis() + CLAIM_SETTLE_MS;
+        while (true) {
+            Optional<MediaRepository.TaskStatus> status = mediaRepository.getTaskStatus(taskId);
+            if (status.isPresent() || System.currentTimeMillis() >= deadline) {
+                return status;
+            }
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return status;
+            }
+        }
+    }
+
+    private void releaseVideoClaim(MediaRepository.TaskEntry task) {
+        String contentKey = MediaKeys.videoIdFor(task.url());
+        if (contentKey != null) {
+            mediaRepository.releaseVideoClaim(contentKey, task.taskId());
+        }
+    }
+
+    /**
+     * Returns the task already covering this video, under this or any other URL form,
+     * re-queueing it when its media or its failed run needs to be picked up again.
+     */
+    private String reuseExistingTask(String url, List<MediaRepository.TaskEntry> existingTasks) {
         for (MediaRepository.TaskEntry task : existingTasks) {
-            if (url.equals(task.url()) && AppConstants.TaskStatus.COMPLETED.equals(task.status())) {
+            if (!MediaKeys.sameSource(url, task.url())) {
+                continue;
+            }
+            if (AppConstants.TaskStatus.COMPLETED.equals(task.status())) {
+                if (task.videoId() != null && !StorageManager.hasCompleteMedia(new File(storagePath, task.videoId()))) {
+                    // Evicted by the storage quota: fetch the media again, the subtitles are still on disk
+                    log.info("Media of completed task {} was evicted, downloading it again", task.taskId());
+                    requeue(task.taskId(), task.url(), task.title(), AppConstants.Messages.RESTORING_MEDIA);
+                    return task.taskId();
+                }
                 log.info("Task for URL {} already completed, returning existing taskId: {}", url, task.taskId());
                 return task.taskId();
             }
+            if (AppConstants.TaskStatus.PENDING.equals(task.status()) || AppConstants.TaskStatus.PROCESSING.equals(task.status())) {
+                log.info("Task for URL {} already in progress, returning existing taskId: {}", url, task.taskId());
+                return task.taskId();
+            }
         }
-
-        String taskId = UUID.randomUUID().toString();
-        String videoTitle = ytDlpClient.getVideoTitle(url);
-        mediaRepository.saveTaskStatus(taskId, AppConstants.TaskStatus.PENDING, 0, null, null, url, videoTitle);
-        
-        processVideoAsync(taskId, url, videoTitle);
-        
-        return taskId;
+        for (MediaRepository.TaskEntry task : existingTasks) {
+            // A failed attempt with a checkpoint is retried in place, reusing its download and translations
+            if (MediaKeys.sameSource(url, task.url()) && AppConstants.TaskStatus.FAILED.equals(task.status())
+                    && mediaRepository.getCheckpoint(task.taskId()).isPresent()) {
+                log.info("Retrying failed task {} for URL {} from its checkpoint", task.taskId(), url);
+                requeue(task.taskId(), task.url(), task.title(), AppConstants.Messages.RETRYING);
+                return task.taskId();
+            }
+        }
+        return null;
     }
 
     public MediaRepository.TaskStatus getTaskStatus(String taskId) {
@@ -68,37 +307,61 @@ public class MediaApplicationService {
         return mediaRepository.getAllTasks();
     }
 
+    /**
+     * Deletes the task, and its video directory if no other task shares it.
+     */
     public void deleteTask(String taskId) {
+        MediaRepository.TaskEntry deleted = mediaRepository.getAllTasks().stream()
+                .filter(task -> taskId.equals(task.taskId()))
+                .findFirst()
+                .orElse(null);
+        String videoId = deleted != null ? storageManager.videoIdOf(deleted) : null;
         mediaRepository.deleteTask(taskId);
+        if (deleted != null) {
+            releaseVideoClaim(deleted);
+        }
+        if (videoId != null) {
+            storageManager.release(videoId);
+        }
     }
 
     public void deleteFailedTasks() {
+        Set<String> videoIds = new HashSet<>();
+        List<MediaRepository.TaskEntry> failed = new ArrayList<>();
+        for (MediaRepository.TaskEntry task : mediaRepository.getAllTasks()) {
+            if (AppConstants.TaskStatus.FAILED.equals(task.status())) {
+                failed.add(task);
+                String videoId = storageManager.videoIdOf(task);
+                if (videoId != null) {
+                    videoIds.add(videoId);
+                }
+            }
+        }
         mediaRepository.deleteFailedTasks();
+        failed.forEach(this::releaseVideoClaim);
+        // One reference scan for the whole batch
+        storageManager.release(videoIds);
     }
 
-    public CourseDetailResponse getCourseDetail(String videoId) {
+    public Optional<TaskTrace> getTaskTrace(String taskId) {
+        return mediaRepository.getTaskTrace(taskId);
+    }
+
+    /**
+     * Resolves everything the course detail needs up front, so a missing video fails before
+     * the response starts streaming.
+     */
+    public CourseDetail getCourseDetail(String videoId) {
         File videoDir = new File(storagePath, videoId);
         if (!videoDir.exists()) {
             throw new RuntimeException("Video not found");
         }
+        storageManager.recordAccess(videoId);
 
         File videoFile = findVideoFile(videoDir);
         String videoFileName = videoFile != null ? videoFile.getName() : "video" + AppConstants.Storage.MP4_EXT;
 
-        File subsFile = new File(videoDir, AppConstants.Storage.SUBS_JSON);
-        List<SubtitleLine> subtitles = new ArrayList<>();
-        if (subsFile.exists()) {
-            try {
-                ObjectMapper mapper = new ObjectMapper();
-                subtitles = mapper.readValue(subsFile, mapper.getTypeFactory().constructCollectionType(List.class, SubtitleLine.class));
-            } catch (Exception e) {
-                log.error("Failed to read subtitles file: {}", subsFile.getAbsolutePath(), e);
-            }
-        }
-
-        List<SubtitleLineDto> dtos = subtitles.stream()
-                .map(s -> new SubtitleLineDto(s.getStartTime(), s.getEndTime(), s.getEn(), s.getCn()))
-                .collect(Collectors.toList());
+        SubtitleIndex index = loadSubtitleIndex(videoDir);
         
         // Get title from repository if available
         String title = "YouTube Video";
@@ -110,67 +373,250 @@ public class MediaApplicationService {
             }
         }
 
-        return new CourseDetailResponse(title, "/downloads/" + videoId + "/" + videoFileName, dtos);
+        return new CourseDetail(title, "/downloads/" + videoId + "/" + videoFileName, index);
     }
 
+    public void writeCourseDetail(CourseDetail detail, OutputStream out) throws IOException {
+        SubtitleIndex index = detail.subtitles();
+        transcriptCodec.writeCourseDetail(out, detail.title(), detail.videoUrl(), index.transcript(), index.all());
+    }
+
+    public record CourseDetail(String title, String videoUrl, SubtitleIndex subtitles) {}
+
+    /**
+     * Cues overlapping [from, to); a null {@code to} leaves the window open-ended.
+     */
+    public SubtitleWindowResponse getSubtitleWindow(String videoId, double from, Double to) {
+        File videoDir = new File(storagePath, videoId);
+        if (!videoDir.exists()) {
+            throw new RuntimeException("Video not found");
+        }
+        storageManager.recordAccess(videoId);
+        SubtitleIndex index = loadSubtitleIndex(videoDir);
+        // An explicit end is reported as requested; an open-ended window ends with the last cue
+        double windowEnd = to != null ? to : Math.max(from, index.lastEndMs() / 1000.0);
+        return new SubtitleWindowResponse(from, windowEnd, index.size(),
+                toDtos(index.transcript(), index.window(from, to != null ? to : Double.MAX_VALUE)));
+    }
+
+    public SearchResponse search(String query, int limit) {
+        long startedAt = System.currentTimeMillis();
+        SubtitleSearchIndex.Result result = searchIndex.search(query, Math.min(limit, maxSearchResults));
+        List<SearchHitDto> hits = new ArrayList<>(result.hits().size());
+        for (SubtitleSearchIndex.Hit hit : result.hits()) {
+            hits.add(new SearchHitDto(hit.videoId(), hit.title(), hit.startMs() / 1000.0, hit.endMs() / 1000.0, hit.field(), hit.text(), hit.score()));
+        }
+        return new SearchResponse(query, result.total(), System.currentTimeMillis() - startedAt, hits);
+    }
+
+    private SubtitleIndex loadSubtitleIndex(File videoDir) {
+        File subsFile = new File(videoDir, AppConstants.Storage.SUBS_JSON);
+        if (!subsFile.exists()) {
+            return new SubtitleIndex(Transcript.empty());
+        }
+        String key = videoDir.getName();
+        long lastModified = subsFile.lastModified();
+        synchronized (subtitleIndexCache) {
+            CachedIndex cached = subtitleIndexCache.get(key);
+            if (cached != null && cached.lastModified() == lastModified) {
+                return cached.index();
+            }
+        }
+
+        Transcript transcript;
+        try {
+            transcript = transcriptCodec.read(subsFile);
+        } catch (Exception e) {
+            log.error("Failed to read subtitles file: {}", subsFile.getAbsolutePath(), e);
+            return new SubtitleIndex(Transcript.empty());
+        }
+
+        SubtitleIndex index = new SubtitleIndex(transcript);
+        synchronized (subtitleIndexCache) {
+            subtitleIndexCache.put(key, new CachedIndex(lastModified, index));
+        }
+        return index;
+    }
+
+    private List<SubtitleLineDto> toDtos(Transcript transcript, int[] rows) {
+        List<SubtitleLineDto> dtos = new ArrayList<>(rows.length);
+        for (int row : rows) {
+            dtos.add(new SubtitleLineDto(transcript.startSeconds(row), transcript.endSeconds(row), transcript.en(row), transcript.cn(row)));
+        }
+        return dtos;
+    }
+
+    private record CachedIndex(long lastModified, SubtitleIndex index) {}
+
     public File getVideoFile(String videoId) {
         File videoDir = new File(storagePath, videoId);
+        storageManager.recordAccess(videoId);
         return findVideoFile(videoDir);
     }
 
     private File findVideoFile(File videoDir) {
         if (!videoDir.exists()) return null;
-        File[] videoFiles = videoDir.listFiles((dir, name) -> name.startsWith(AppConstants.Storage.VIDEO_PREFIX) 
-                && !name.endsWith(AppConstants.Storage.VTT_EXT) 
-                && !name.endsWith(AppConstants.Storage.JSON_EXT));
+        File[] videoFiles = videoDir.listFiles((dir, name) -> StorageManager.isCompleteMedia(name));
         return (videoFiles != null && videoFiles.length > 0) ? videoFiles[0] : null;
     }
 
-    @Async
-    public void processVideoAsync(String taskId, String url, String title) {
+    /**
+     * Runs the full pipeline for one task. Invoked on a {@link TaskQueue} worker thread.
+     */
+    public void processVideoAsync(String taskId, String url, String queuedTitle) {
+        metrics.taskStarted();
+        TaskTracer tracer = new TaskTracer(taskId, mediaRepository, metrics);
+        String title = resolveTitle(url, queuedTitle, tracer);
         mediaRepository.saveTaskStatus(taskId, AppConstants.TaskStatus.PROCESSING, 10, null, AppConstants.Messages.INIT, url, title);
 
-        String videoId = UUID.randomUUID().toString();
+        TaskCheckpoint checkpoint = mediaRepository.getCheckpoint(taskId).orElse(null);
+        if (checkpoint == null) {
+            // Same video, same directory: media and subtitles another task already stored are reused
+            String contentKey = MediaKeys.videoIdFor(url);
+            checkpoint = new TaskCheckpoint(contentKey != null ? contentKey : UUID.randomUUID().toString(), TaskCheckpoint.Stage.STARTED, System.currentTimeMillis());
+            TaskCheckpoint.Stage stored = storedStage(checkpoint.getVideoId());
+            if (stored != TaskCheckpoint.Stage.STARTED) {
+                log.info("Task {} shares stored video {} (up to {})", taskId, checkpoint.getVideoId(), stored);
+            }
+            saveCheckpoint(taskId, checkpoint, stored);
+        } else {
+            log.info("Task {} resuming from checkpoint {} (video {})", taskId, checkpoint.getStage(), checkpoint.getVideoId());
+        }
+        String videoId = checkpoint.getVideoId();
         File outputDir = new File(storagePath, videoId);
         if (!outputDir.exists()) {
             outputDir.mkdirs();
         }
 
         try {
-            mediaRepository.saveTaskStatus(taskId, AppConstants.TaskStatus.PROCESSING, 20, null, AppConstants.Messages.DOWNLOADING_YT, url, title);
-            String outputTemplate = new File(outputDir, AppConstants.YtDlp.OUTPUT_TEMPLATE_BASE).getAbsolutePath();
-            ytDlpClient.downloadVideo(url, outputTemplate, (progress) -> {
-                // Map yt-dlp progress (0-80) to task progress (20-70)
-                int taskProgress = 20 + (progress * 50 / 100);
-                mediaRepository.saveTaskStatus(taskId, AppConstants.TaskStatus.PROCESSING, taskProgress, null, AppConstants.Messages.DOWNLOADING_PROGRESS + progress + "%", url, title);
-            });
+            if (checkpoint.reached(TaskCheckpoint.Stage.DOWNLOADED) && StorageManager.hasCompleteMedia(outputDir)) {
+                log.info("Task {} reusing downloaded media in {}", taskId, outputDir.getAbsolutePath());
+            } else {
+                mediaRepository.saveTaskStatus(taskId, AppConstants.TaskStatus.PROCESSING, 20, null, AppConstants.Messages.DOWNLOADING_YT, url, title);
+                String outputTemplate = new File(outputDir, AppConstants.YtDlp.OUTPUT_TEMPLATE_BASE).getAbsolutePath();
+                StageTrace downloadStage = tracer.begin(AppConstants.Stage.DOWNLOAD);
+                try {
+                    ytDlpClient.downloadVideo(url, outputTemplate, (progress) -> {
+                        // Map yt-dlp progress (0-80) to task progress (20-70)
+                        int taskProgress = 20 + (progress * 50 / 100);
+                        mediaRepository.saveTaskStatus(taskId, AppConstants.TaskStatus.PROCESSING, taskProgress, null, AppConstants.Messages.DOWNLOADING_PROGRESS + progress + "%", url, title);
+                    });
+                } catch (Exception e) {
+                    tracer.fail(downloadStage, e);
+                    throw e;
+                }
+                downloadStage.setBytes(directorySize(outputDir));
+                tracer.end(downloadStage);
+                saveCheckpoint(taskId, checkpoint, TaskCheckpoint.Stage.DOWNLOADED);
+            }
 
             mediaRepository.saveTaskStatus(taskId, AppConstants.TaskStatus.PROCESSING, 75, null, AppConstants.Messages.PARSING_SUBS, url, title);
             
             // Process Subtitles
-            processSubtitles(taskId, outputDir, url, title);
+            processSubtitles(taskId, outputDir, url, title, tracer, checkpoint);
 
             mediaRepository.saveTaskStatus(taskId, AppConstants.TaskStatus.COMPLETED, 100, videoId, AppConstants.Messages.PARSE_COMPLETE, url, title);
 
         } catch (Exception e) {
             log.error("Task {} failed", taskId, e);
             mediaRepository.saveTaskStatus(taskId, AppConstants.TaskStatus.FAILED, 0, null, "错误: " + e.getMessage(), url, title);
+        } finally {
+            metrics.taskFinished();
+        }
+    }
+
+    /**
+     * Single submissions are queued before their title is known; it is fetched here, on the worker.
+     */
+    private String resolveTitle(String url, String queuedTitle, TaskTracer tracer) {
+        if (queuedTitle != null && !queuedTitle.isEmpty()) {
+            return queuedTitle;
+        }
+        StageTrace metadataStage = tracer.begin(AppConstants.Stage.METADATA);
+        String title = ytDlpClient.getVideoTitle(url);
+        tracer.end(metadataStage);
+        return title;
+    }
+
+    private void processSubtitles(String taskId, File outputDir, String url, String title, TaskTracer tracer, TaskCheckpoint checkpoint) throws IOException {
+        File jsonFile = new File(outputDir, AppConstants.Storage.SUBS_JSON);
+        Transcript finalSubs;
+        if (checkpoint.reached(TaskCheckpoint.Stage.PARSED) && jsonFile.exists()) {
+            // subs.json already holds the merged track plus every batch translated before the interruption
+            finalSubs = transcriptCodec.read(jsonFile);
+            log.info("Task {} reusing {} parsed subtitle lines from checkpoint", taskId, finalSubs.size());
+        } else {
+            finalSubs = parseSubtitles(outputDir, tracer);
+            writeSubtitleFile(jsonFile, finalSubs);
+            saveCheckpoint(taskId, checkpoint, TaskCheckpoint.Stage.PARSED);
+        }
+
+        // --- Translation Logic ---
+        // Only the rows still missing a translation are materialised as SubtitleLine objects
+        Transcript.TranslationView untranslated = finalSubs.translationView();
+        
+        if (!untranslated.isEmpty()) {
+            mediaRepository.saveTaskStatus(taskId, AppConstants.TaskStatus.PROCESSING, 80, null, AppConstants.Messages.TRANSLATION_STARTED, url, title);
+            StageTrace translateStage = tracer.begin(AppConstants.Stage.TRANSLATE);
+            translateStage.setLines(untranslated.size());
+            TranslationStats stats = new TranslationStats();
+            AtomicLong lastCheckpointAt = new AtomicLong(System.currentTimeMillis());
+            Transcript subs = finalSubs;
+            try {
+                translationService.translate(untranslated.lines(), (progress) -> {
+                    // Map translation progress (0-100) to task progress (80-95)
+                    int taskProgress = 80 + (progress * 15 / 100);
+                    mediaRepository.saveTaskStatus(taskId, AppConstants.TaskStatus.PROCESSING, taskProgress, null, AppConstants.Messages.TRANSLATION_PROGRESS + progress + "%", url, title);
+                    checkpointTranslation(taskId, checkpoint, jsonFile, subs, untranslated, lastCheckpointAt);
+                }, stats);
+                mediaRepository.saveTaskStatus(taskId, AppConstants.TaskStatus.PROCESSING, 95, null, AppConstants.Messages.TRANSLATION_COMPLETE, url, title);
+                applyTranslationStats(translateStage, stats);
+                tracer.end(translateStage);
+            } catch (Exception e) {
+                applyTranslationStats(translateStage, stats);
+                tracer.fail(translateStage, e);
+                log.warn("Translation failed for task {}: {}", taskId, e.getMessage());
+                mediaRepository.saveTaskStatus(taskId, AppConstants.TaskStatus.PROCESSING, 90, null, AppConstants.Messages.TRANSLATION_FAILED, url, title);
+            }
+            synchronized (checkpoint) {
+                untranslated.writeBack();
+            }
+        }
+
+        // Save to JSON
+        StageTrace writeStage = tracer.begin(AppConstants.Stage.WRITE);
+        try {
+            writeSubtitleFile(jsonFile, finalSubs);
+        } catch (IOException e) {
+            tracer.fail(writeStage, e);
+            throw e;
         }
+        writeStage.setBytes(jsonFile.length());
+        writeStage.setLines(finalSubs.size());
+        tracer.end(writeStage);
+        saveCheckpoint(taskId, checkpoint, TaskCheckpoint.Stage.TRANSLATED);
+
+        searchIndex.index(outputDir.getName(), title, finalSubs);
+        storageManager.recordStored(outputDir.getName());
     }
 
-    private void processSubtitles(String taskId, File outputDir, String url, String title) throws IOException {
+    private Transcript parseSubtitles(File outputDir, TaskTracer tracer) {
+        StageTrace parseStage = tracer.begin(AppConstants.Stage.PARSE);
         File[] vttFiles = outputDir.listFiles((dir, name) -> name.endsWith(AppConstants.Storage.VTT_EXT));
-        List<SubtitleLine> finalSubs = new ArrayList<>();
+        Transcript finalSubs = Transcript.empty();
+        long vttBytes = 0;
 
         if (vttFiles != null) {
-            List<SubtitleLine> enSubs = new ArrayList<>();
-            List<SubtitleLine> cnSubs = new ArrayList<>();
+            Transcript enSubs = Transcript.empty();
+            Transcript cnSubs = Transcript.empty();
 
             for (File f : vttFiles) {
                 if (f.getName().contains(AppConstants.Storage.EN_SUB_MARK)) {
                     enSubs = subtitleParser.parseVtt(f);
+                    vttBytes += f.length();
                 } else if (f.getName().contains(AppConstants.Storage.ZH_SUB_MARK)) {
                     cnSubs = subtitleParser.parseVtt(f);
+                    vttBytes += f.length();
                 }
             }
             
@@ -180,28 +626,82 @@ public class MediaApplicationService {
                 finalSubs = subtitleParser.mergeSubtitles(enSubs, cnSubs);
             }
         }
+        parseStage.setBytes(vttBytes);
+        parseStage.setLines(finalSubs.size());
+        tracer.end(parseStage);
+        return finalSubs;
+    }
 
-        // --- Translation Logic ---
-        boolean needsTranslation = finalSubs.stream().anyMatch(s -> (s.getCn() == null || s.getCn().isEmpty()) && s.getEn() != null);
-        
-        if (needsTranslation) {
-            mediaRepository.saveTaskStatus(taskId, AppConstants.TaskStatus.PROCESSING, 80, null, AppConstants.Messages.TRANSLATION_STARTED, url, title);
+    /**
+     * Persists the translations finished so far, at most once per checkpoint interval,
+     * so a crash mid-translation only repeats the batches after the last save.
+     */
+    private void checkpointTranslation(String taskId, TaskCheckpoint checkpoint, File jsonFile,
+                                       Transcript subs, Transcript.TranslationView pending, AtomicLong lastCheckpointAt) {
+        long now = System.currentTimeMillis();
+        long last = lastCheckpointAt.get();
+        if (now - last < checkpointIntervalSeconds * 1000L || !lastCheckpointAt.compareAndSet(last, now)) {
+            return;
+        }
+        try {
+            synchronized (checkpoint) {
+                pending.writeBack();
+                writeSubtitleFile(jsonFile, subs);
+                saveCheckpoint(taskId, checkpoint, TaskCheckpoint.Stage.PARSED);
+            }
+        } catch (IOException e) {
+            log.warn("Failed to checkpoint translations for task {}: {}", taskId, e.getMessage());
+        }
+    }
+
+    /**
+     * How far the pipeline can skip ahead for a video whose directory already holds the
+     * artifacts of an earlier task.
+     */
+    private TaskCheckpoint.Stage storedStage(String videoId) {
+        File videoDir = new File(storagePath, videoId);
+        if (!StorageManager.hasCompleteMedia(videoDir)) {
+            return TaskCheckpoint.Stage.STARTED;
+        }
+        return new File(videoDir, AppConstants.Storage.SUBS_JSON).exists() ? TaskCheckpoint.Stage.PARSED : TaskCheckpoint.Stage.DOWNLOADED;
+    }
+
+    private void saveCheckpoint(String taskId, TaskCheckpoint checkpoint, TaskCheckpoint.Stage stage) {
+        checkpoint.setStage(stage);
+        checkpoint.setUpdatedAt(System.currentTimeMillis());
+        mediaRepository.saveCheckpoint(taskId, checkpoint);
+    }
+
+    /**
+     * Writes subs.json through a temp file and an atomic rename, so a crash never leaves a truncated file behind.
+     */
+    private void writeSubtitleFile(File jsonFile, Transcript subtitles) throws IOException {
+        // Unique temp name: a second writer in the same directory must not share the file being renamed
+        File tmpFile = Files.createTempFile(jsonFile.getParentFile().toPath(), jsonFile.getName() + ".", ".tmp").toFile();
+        try {
+            transcriptCodec.write(tmpFile, subtitles);
             try {
-                translationService.translate(finalSubs, (progress) -> {
-                    // Map translation progress (0-100) to task progress (80-95)
-                    int taskProgress = 80 + (progress * 15 / 100);
-                    mediaRepository.saveTaskStatus(taskId, AppConstants.TaskStatus.PROCESSING, taskProgress, null, AppConstants.Messages.TRANSLATION_PROGRESS + progress + "%", url, title);
-                });
-                mediaRepository.saveTaskStatus(taskId, AppConstants.TaskStatus.PROCESSING, 95, null, AppConstants.Messages.TRANSLATION_COMPLETE, url, title);
-            } catch (Exception e) {
-                log.warn("Translation failed for task {}: {}", taskId, e.getMessage());
-                mediaRepository.saveTaskStatus(taskId, AppConstants.TaskStatus.PROCESSING, 90, null, AppConstants.Messages.TRANSLATION_FAILED, url, title);
+                Files.move(tmpFile.toPath(), jsonFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmpFile.toPath(), jsonFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
             }
+        } finally {
+            Files.deleteIfExists(tmpFile.toPath());
         }
+    }
 
-        // Save to JSON
-        ObjectMapper mapper = new ObjectMapper();
-        File jsonFile = new File(outputDir, AppConstants.Storage.SUBS_JSON);
-        mapper.writeValue(jsonFile, finalSubs);
+    private void applyTranslationStats(StageTrace stage, TranslationStats stats) {
+        stage.setProvider(stats.describeProviders());
+        stage.setRetries(stats.getRetries());
+    }
+
+    private long directorySize(File dir) {
+        File[] files = dir.listFiles(File::isFile);
+        if (files == null) return 0;
+        long total = 0;
+        for (File f : files) {
+            total += f.length();
+        }
+        return total;
     }
 }
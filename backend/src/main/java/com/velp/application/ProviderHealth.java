@@ -0,0 +1,172 @@
+package com.velp.application;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free health record for one translation provider.
+ *
+ * Outcomes are counted in a ring of time buckets covering the last window, so the breaker
+ * trips on the recent error rate rather than on a run of consecutive failures. After the
+ * cooldown a single probe request is let through (half-open); its outcome closes or
+ * re-opens the circuit. Latency is tracked as an exponentially weighted moving average
+ * and, together with the error rate, used to rank providers.
+ *
+ * Bucket rotation is best effort: an increment racing with a bucket reset may be lost,
+ * which only nudges the error rate and never blocks a caller.
+ */
+class ProviderHealth {
+
+    enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private static final int BUCKETS = 10;
+    private static final double EWMA_ALPHA = 0.2;
+    private static final long NO_SAMPLE = Double.doubleToLongBits(-1);
+
+    private final long bucketMs;
+    private final double failureRateThreshold;
+    private final int minimumCalls;
+    private final long cooldownMs;
+    private final Bucket[] buckets = new Bucket[BUCKETS];
+    private final AtomicReference<State> state = new AtomicReference<>(State.CLOSED);
+    private final AtomicLong openUntil = new AtomicLong();
+    private final AtomicLong probeStartedAt = new AtomicLong();
+    private final AtomicLong latencyEwmaBits = new AtomicLong(NO_SAMPLE);
+
+    ProviderHealth(long windowMs, double failureRateThreshold, int minimumCalls, long cooldownMs) {
+        this.bucketMs = Math.max(1, windowMs / BUCKETS);
+        this.failureRateThreshold = failureRateThreshold;
+        this.minimumCalls = Math.max(1, minimumCalls);
+        this.cooldownMs = cooldownMs;
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets[i] = new Bucket();
+        }
+    }
+
+    State state() {
+        return state.get();
+    }
+
+    /**
+     * Whether a request may be sent now. While half-open only one caller gets the probe;
+     * a probe that never reports back is given up after the cooldown so the circuit cannot stick.
+     */
+    boolean allowRequest(long now) {
+        State current = state.get();
+        if (current == State.CLOSED) {
+            return true;
+        }
+        if (current == State.OPEN) {
+            if (now < openUntil.get()) {
+                return false;
+            }
+            state.compareAndSet(State.OPEN, State.HALF_OPEN);
+        }
+        long started = probeStartedAt.get();
+        return (started == 0 || now - started > cooldownMs) && probeStartedAt.compareAndSet(started, now);
+    }
+
+    /**
+     * Returns true if this success closed the circuit.
+     */
+    boolean recordSuccess(long now, long latencyMs) {
+        bucket(now).successes.increment();
+        updateLatency(latencyMs);
+        if (state.get() == State.HALF_OPEN && state.compareAndSet(State.HALF_OPEN, State.CLOSED)) {
+            // Start the closed period with a clean window so the failures that opened it do not re-trip it
+            for (Bucket b : buckets) {
+                b.epoch.set(-1);
+            }
+            probeStartedAt.set(0);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns true if this failure opened the circuit.
+     */
+    boolean recordFailure(long now) {
+        bucket(now).failures.increment();
+        State current = state.get();
+        if (current == State.HALF_OPEN) {
+            openUntil.set(now + cooldownMs);
+            if (state.compareAndSet(State.HALF_OPEN, State.OPEN)) {
+                probeStartedAt.set(0);
+                return true;
+            }
+            return false;
+        }
+        if (current == State.CLOSED) {
+            long[] counts = counts(now);
+            long total = counts[0] + counts[1];
+            if (total >= minimumCalls && (double) counts[1] / total >= failureRateThreshold) {
+                openUntil.set(now + cooldownMs);
+                return state.compareAndSet(State.CLOSED, State.OPEN);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Gives back a probe whose request ended without a verdict (e.g. provider disabled).
+     */
+    void releaseProbe() {
+        probeStartedAt.set(0);
+    }
+
+    double errorRate(long now) {
+        long[] counts = counts(now);
+        long total = counts[0] + counts[1];
+        return total == 0 ? 0 : (double) counts[1] / total;
+    }
+
+    /**
+     * Smoothed latency in milliseconds, or -1 before the first successful call.
+     */
+    double latencyEwmaMs() {
+        return Double.longBitsToDouble(latencyEwmaBits.get());
+    }
+
+    private void updateLatency(long latencyMs) {
+        while (true) {
+            long bits = latencyEwmaBits.get();
+            double previous = Double.longBitsToDouble(bits);
+            double next = previous < 0 ? latencyMs : previous + EWMA_ALPHA * (latencyMs - previous);
+            if (latencyEwmaBits.compareAndSet(bits, Double.doubleToLongBits(next))) {
+                return;
+            }
+        }
+    }
+
+    private Bucket bucket(long now) {
+        long epoch = now / bucketMs;
+        Bucket bucket = buckets[(int) (epoch % BUCKETS)];
+        long seen = bucket.epoch.get();
+        if (seen != epoch && bucket.epoch.compareAndSet(seen, epoch)) {
+            bucket.successes.reset();
+            bucket.failures.reset();
+        }
+        return bucket;
+    }
+
+    private long[] counts(long now) {
+        long oldest = now / bucketMs - BUCKETS + 1;
+        long successes = 0;
+        long failures = 0;
+        for (Bucket bucket : buckets) {
+            if (bucket.epoch.get() >= oldest) {
+                successes += bucket.successes.sum();
+                failures += bucket.failures.sum();
+            }
+        }
+        return new long[]{successes, failures};
+    }
+
+    private static final class Bucket {
+        private final AtomicLong epoch = new AtomicLong(-1);
+        private final LongAdder successes = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+    }
+}
@@ -0,0 +1,67 @@
+package com.velp.application;
+
+import com.velp.common.constants.AppConstants;
+import com.velp.domain.model.StageTrace;
+import com.velp.domain.model.TaskTrace;
+import com.velp.domain.repository.MediaRepository;
+import com.velp.infrastructure.metrics.PipelineMetrics;
+
+import java.util.ArrayList;
+
+/**
+ * Records the stage timeline of a single task and stores it with the task after
+ * every transition, so a stuck or slow task can be inspected while it runs and
+ * after it finishes.
+ */
+class TaskTracer {
+
+    private final String taskId;
+    private final TaskTrace trace;
+    private final MediaRepository mediaRepository;
+    private final PipelineMetrics metrics;
+
+    TaskTracer(String taskId, MediaRepository mediaRepository, PipelineMetrics metrics) {
+        this.taskId = taskId;
+        this.mediaRepository = mediaRepository;
+        this.metrics = metrics;
+        this.trace = mediaRepository.getTaskTrace(taskId).orElseGet(() -> new TaskTrace(taskId, new ArrayList<>()));
+    }
+
+    StageTrace begin(String stage) {
+        StageTrace stageTrace = new StageTrace();
+        stageTrace.setStage(stage);
+        stageTrace.setStatus(AppConstants.Stage.STATUS_RUNNING);
+        stageTrace.setStartedAt(System.currentTimeMillis());
+        synchronized (trace) {
+            trace.getStages().add(stageTrace);
+        }
+        persist();
+        return stageTrace;
+    }
+
+    void end(StageTrace stageTrace) {
+        finish(stageTrace, AppConstants.Stage.STATUS_SUCCESS, null);
+    }
+
+    void fail(StageTrace stageTrace, Exception error) {
+        finish(stageTrace, AppConstants.Stage.STATUS_FAILED, error.getMessage());
+    }
+
+    private void finish(StageTrace stageTrace, String status, String error) {
+        long now = System.currentTimeMillis();
+        synchronized (trace) {
+            stageTrace.setStatus(status);
+            stageTrace.setEndedAt(now);
+            stageTrace.setDurationMs(now - stageTrace.getStartedAt());
+            stageTrace.setError(error);
+        }
+        metrics.recordStage(stageTrace.getStage(), status, stageTrace.getDurationMs());
+        persist();
+    }
+
+    private void persist() {
+        synchronized (trace) {
+            mediaRepository.saveTaskTrace(taskId, trace);
+        }
+    }
+}
@@ -1,8 +1,15 @@
 package com.velp.application;
 
 import com.velp.domain.model.SubtitleLine;
+import com.velp.domain.model.TranslationStats;
 import com.velp.domain.service.TranslationService;
+import com.velp.infrastructure.external.ProviderHttpException;
+import com.velp.infrastructure.external.TranslationResponseParser;
 import com.velp.infrastructure.factory.TranslationServiceFactory;
+import com.velp.infrastructure.metrics.PipelineMetrics;
+import com.velp.infrastructure.ratelimit.ProviderRateLimiter;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Primary;
@@ -10,13 +17,25 @@ import org.springframework.stereotype.Service;
 
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
-import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashSet;
+import java.util.HexFormat;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -24,7 +43,12 @@ import java.util.stream.Collectors;
 @Primary
 public class TranslationManager implements TranslationService {
 
+    private static final int PROMPT_TOKEN_OVERHEAD = 200;
+    private static final int LATENCY_WINDOW_SIZE = 128;
+
     private final TranslationServiceFactory factory;
+    private final ProviderRateLimiter rateLimiter;
+    private final PipelineMetrics metrics;
     private final String preferredProvider;
     private final String fallbackProviders;
 
@@ -34,23 +58,91 @@ public class TranslationManager implements TranslationService {
     @Value("${velp.llm.retry.max-attempts:2}")
     private int maxAttempts;
 
-    @Value("${velp.llm.circuit-breaker.threshold:3}")
-    private int circuitBreakerThreshold;
+    @Value("${velp.llm.coalesce.linger-ms:150}")
+    private long coalesceLingerMs;
+
+    @Value("${velp.llm.retry.base-backoff-ms:500}")
+    private long baseBackoffMs;
+
+    @Value("${velp.llm.retry.max-backoff-ms:30000}")
+    private long maxBackoffMs;
+
+    @Value("${velp.llm.retry.max-rate-limit-waits:3}")
+    private int maxRateLimitWaits;
+
+    @Value("${velp.llm.retry.max-gap-rounds:2}")
+    private int maxGapRounds;
+
+    @Value("${velp.llm.hedging.enabled:false}")
+    private boolean hedgingEnabled;
+
+    @Value("${velp.llm.hedging.percentile:0.95}")
+    private double hedgingPercentile;
+
+    @Value("${velp.llm.hedging.min-delay-ms:1000}")
+    private long hedgingMinDelayMs;
+
+    @Value("${velp.llm.hedging.initial-delay-ms:8000}")
+    private long hedgingInitialDelayMs;
+
+    @Value("${velp.llm.hedging.min-samples:20}")
+    private int hedgingMinSamples;
+
+    @Value("${velp.llm.circuit-breaker.failure-rate-threshold:0.5}")
+    private double circuitBreakerFailureRate;
+
+    @Value("${velp.llm.circuit-breaker.minimum-calls:5}")
+    private int circuitBreakerMinimumCalls;
+
+    @Value("${velp.llm.circuit-breaker.window-seconds:60}")
+    private int circuitBreakerWindowSeconds;
 
     @Value("${velp.llm.circuit-breaker.cooldown-seconds:60}")
     private int circuitBreakerCooldownSeconds;
 
-    private final Map<String, FailureState> failureStates = new ConcurrentHashMap<>();
+    @Value("${velp.llm.routing.dynamic:true}")
+    private boolean dynamicRouting;
+
+    private final Map<String, ProviderHealth> providerHealth = new ConcurrentHashMap<>();
     private final Map<String, String> translationCache = new ConcurrentHashMap<>();
+    private final Map<String, LatencyWindow> latencyWindows = new ConcurrentHashMap<>();
+    private final int maxConcurrency;
+    private final ExecutorService batchExecutor;
+    private BatchCoalescer coalescer;
+    private final ExecutorService hedgeExecutor = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "translation-hedge");
+        thread.setDaemon(true);
+        return thread;
+    });
 
     public TranslationManager(
             TranslationServiceFactory factory,
+            ProviderRateLimiter rateLimiter,
+            PipelineMetrics metrics,
             @Value("${velp.llm.preferred:deepseek}") String preferredProvider,
-            @Value("${velp.llm.fallback-providers:}") String fallbackProviders
+            @Value("${velp.llm.fallback-providers:}") String fallbackProviders,
+            @Value("${velp.llm.max-concurrency:10}") int maxConcurrency
     ) {
         this.factory = factory;
+        this.rateLimiter = rateLimiter;
+        this.metrics = metrics;
         this.preferredProvider = preferredProvider;
         this.fallbackProviders = fallbackProviders;
+        this.maxConcurrency = maxConcurrency;
+        AtomicInteger counter = new AtomicInteger();
+        this.batchExecutor = Executors.newFixedThreadPool(Math.max(1, maxConcurrency), runnable -> {
+            Thread thread = new Thread(runnable, "translation-batch-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PostConstruct
+    void initCoalescer() {
+        if (coalesceLingerMs > 0) {
+            coalescer = new BatchCoalescer(safeBatchSize(), coalesceLingerMs, batchExecutor,
+                    (batch, stats) -> translateBatch(batch, buildProviderChain(), stats));
+        }
     }
 
     @Override
@@ -60,6 +152,11 @@ public class TranslationManager implements TranslationService {
 
     @Override
     public void translate(List<SubtitleLine> subtitles, java.util.function.Consumer<Integer> progressCallback) {
+        translate(subtitles, progressCallback, new TranslationStats());
+    }
+
+    @Override
+    public void translate(List<SubtitleLine> subtitles, java.util.function.Consumer<Integer> progressCallback, TranslationStats stats) {
         if (subtitles == null || subtitles.isEmpty()) {
             if (progressCallback != null) progressCallback.accept(100);
             return;
@@ -75,7 +172,7 @@ public class TranslationManager implements TranslationService {
         }
 
         int totalToTranslate = candidates.size();
-        applyCache(candidates);
+        stats.recordCacheHits(applyCache(candidates));
         candidates = candidates.stream()
                 .filter(s -> (s.getCn() == null || s.getCn().isEmpty()) && s.getEn() != null && !s.getEn().isEmpty())
                 .collect(Collectors.toList());
@@ -96,20 +193,82 @@ public class TranslationManager implements TranslationService {
             throw new RuntimeException("No translation providers configured");
         }
 
-        int safeBatchSize = Math.max(1, Math.min(batchSize, 100));
+        int safeBatchSize = safeBatchSize();
+        List<List<SubtitleLine>> batches = new ArrayList<>();
         for (int i = 0; i < candidates.size(); i += safeBatchSize) {
-            int end = Math.min(i + safeBatchSize, candidates.size());
-            List<SubtitleLine> batch = candidates.subList(i, end);
-            if (batch.isEmpty()) {
-                continue;
-            }
-            translateBatchWithFallback(batch, providerChain);
+            batches.add(candidates.subList(i, Math.min(i + safeBatchSize, candidates.size())));
+        }
+
+        AtomicInteger completed = new AtomicInteger(translatedCount);
+        Consumer<List<SubtitleLine>> onBatchDone = batch -> {
             updateCache(batch);
-            translatedCount += batch.size();
             if (progressCallback != null) {
-                progressCallback.accept(Math.min(100, translatedCount * 100 / totalToTranslate));
+                // Serialised so concurrent batches never report progress out of order
+                synchronized (completed) {
+                    progressCallback.accept(Math.min(100, completed.addAndGet(batch.size()) * 100 / totalToTranslate));
+                }
+            }
+        };
+
+        // A short tail batch is packed together with the tails of other tasks translating right now
+        List<Future<?>> futures = new ArrayList<>(batches.size());
+        List<SubtitleLine> last = batches.get(batches.size() - 1);
+        if (coalescer != null && last.size() < safeBatchSize) {
+            batches.remove(batches.size() - 1);
+            futures.add(coalescer.submit(last, stats).thenRun(() -> onBatchDone.accept(last)));
+        }
+
+        if (batches.size() <= 1 || maxConcurrency <= 1) {
+            for (List<SubtitleLine> batch : batches) {
+                translateBatch(batch, providerChain, stats);
+                onBatchDone.accept(batch);
+            }
+        } else {
+            // Batches share one bounded pool, so the total number of in-flight provider
+            // requests stays at max-concurrency no matter how many tasks are translating.
+            for (List<SubtitleLine> batch : batches) {
+                futures.add(batchExecutor.submit(() -> {
+                    translateBatch(batch, providerChain, stats);
+                    onBatchDone.accept(batch);
+                }));
             }
         }
+        try {
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (ExecutionException e) {
+            futures.forEach(future -> future.cancel(true));
+            Throwable cause = e.getCause();
+            throw cause instanceof RuntimeException runtime ? runtime : new RuntimeException(cause);
+        } catch (InterruptedException e) {
+            futures.forEach(future -> future.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Translation interrupted", e);
+        }
+    }
+
+    private void translateBatch(List<SubtitleLine> batch, List<String> providerChain, TranslationStats stats) {
+        metrics.batchStarted();
+        try {
+            translateBatchWithFallback(batch, providerChain, stats);
+            retryGaps(batch, providerChain, stats);
+        } finally {
+            metrics.batchFinished();
+        }
+    }
+
+    private int safeBatchSize() {
+        return Math.max(1, Math.min(batchSize, 100));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (coalescer != null) {
+            coalescer.shutdown();
+        }
+        hedgeExecutor.shutdownNow();
+        batchExecutor.shutdownNow();
     }
 
     private List<String> buildProviderChain() {
@@ -134,40 +293,82 @@ public class TranslationManager implements TranslationService {
         return providers;
     }
 
-    private void translateBatchWithFallback(List<SubtitleLine> batch, List<String> providerChain) {
-        RuntimeException lastError = null;
+    /**
+     * Orders the configured chain by current health: providers with an open circuit go last,
+     * then lower recent error rate (in 10% steps, so noise does not reshuffle the chain), then
+     * lower smoothed latency. Providers without latency samples keep their configured position
+     * behind measured ones, and ties keep the configured order.
+     */
+    private List<String> rankProviders(List<String> providerChain) {
+        if (!dynamicRouting || providerChain.size() < 2) {
+            return providerChain;
+        }
+        long now = System.currentTimeMillis();
+        // Snapshot the scores first: they change concurrently and the sort needs a stable comparator
+        List<ProviderScore> scores = new ArrayList<>(providerChain.size());
         for (String provider : providerChain) {
-            if (isCircuitOpen(provider)) {
-                log.warn("Provider {} is in cooldown, skipping", provider);
-                continue;
+            ProviderHealth health = health(provider);
+            double latency = health.latencyEwmaMs();
+            scores.add(new ProviderScore(provider,
+                    health.state() == ProviderHealth.State.OPEN ? 1 : 0,
+                    (int) Math.floor(health.errorRate(now) * 10),
+                    latency < 0 ? Double.MAX_VALUE : latency));
+        }
+        scores.sort(Comparator.comparingInt(ProviderScore::open)
+                .thenComparingInt(ProviderScore::errorBucket)
+                .thenComparingDouble(ProviderScore::latencyMs));
+        return scores.stream().map(ProviderScore::provider).collect(Collectors.toList());
+    }
+
+    private record ProviderScore(String provider, int open, int errorBucket, double latencyMs) {}
+
+    private ProviderHealth health(String provider) {
+        return providerHealth.computeIfAbsent(provider, key -> new ProviderHealth(
+                circuitBreakerWindowSeconds * 1000L, circuitBreakerFailureRate,
+                circuitBreakerMinimumCalls, circuitBreakerCooldownSeconds * 1000L));
+    }
+
+    private void onProviderSuccess(String provider, long elapsedMs) {
+        if (health(provider).recordSuccess(System.currentTimeMillis(), elapsedMs)) {
+            log.info("Provider {} probe succeeded, circuit closed", provider);
+            metrics.setCircuitOpen(provider, false);
+        }
+    }
+
+    private void onProviderFailure(String provider) {
+        if (health(provider).recordFailure(System.currentTimeMillis())) {
+            log.warn("Provider {} circuit opened for {} seconds", provider, circuitBreakerCooldownSeconds);
+            metrics.setCircuitOpen(provider, true);
+        }
+    }
+
+    private void translateBatchWithFallback(List<SubtitleLine> batch, List<String> configuredChain, TranslationStats stats) {
+        RuntimeException lastError = null;
+        List<String> providerChain = rankProviders(configuredChain);
+        List<String> remaining = providerChain;
+        if (hedgingEnabled) {
+            HedgeResult hedged = translateBatchHedged(batch, providerChain, stats);
+            if (hedged.succeeded()) {
+                return;
             }
+            lastError = hedged.lastError();
+            remaining = providerChain.stream().filter(p -> !hedged.tried().contains(p)).collect(Collectors.toList());
+        }
+        for (String provider : remaining) {
             TranslationService service = factory.getService(provider);
             if (service == null) {
                 log.warn("Provider {} not available in factory, skipping", provider);
                 continue;
             }
-            for (int attempt = 1; attempt <= Math.max(1, maxAttempts); attempt++) {
-                long start = System.nanoTime();
-                try {
-                    service.translate(batch);
-                    long elapsedMs = (System.nanoTime() - start) / 1_000_000;
-                    log.info("Provider {} translated batch size {} in {} ms (attempt {})", provider, batch.size(), elapsedMs, attempt);
-                    recordSuccess(provider);
-                    return;
-                } catch (IllegalStateException e) {
-                    log.warn("Provider {} unavailable: {}", provider, e.getMessage());
-                    lastError = new RuntimeException(e);
-                    recordSuccess(provider);
-                    break;
-                } catch (Exception e) {
-                    long elapsedMs = (System.nanoTime() - start) / 1_000_000;
-                    log.warn("Provider {} failed attempt {} ({} ms): {}", provider, attempt, elapsedMs, e.getMessage());
-                    lastError = new RuntimeException(e);
-                    if (attempt >= Math.max(1, maxAttempts)) {
-                        recordFailure(provider);
-                    }
-                }
+            if (!health(provider).allowRequest(System.currentTimeMillis())) {
+                log.warn("Provider {} is in cooldown, skipping", provider);
+                continue;
             }
+            RuntimeException error = translateWithProvider(provider, service, batch, stats, () -> false);
+            if (error == null) {
+                return;
+            }
+            lastError = error;
         }
         if (lastError != null) {
             throw new RuntimeException("All translation providers failed for current batch", lastError);
@@ -175,6 +376,234 @@ public class TranslationManager implements TranslationService {
         throw new RuntimeException("All translation providers unavailable for current batch");
     }
 
+    /**
+     * Re-requests only the lines of a finished batch that came back missing or untranslated,
+     * instead of resending the whole batch. A line that still has no usable translation after
+     * the last round keeps whatever the provider returned, so an echoed source line stays visible.
+     */
+    private void retryGaps(List<SubtitleLine> batch, List<String> providerChain, TranslationStats stats) {
+        for (int round = 1; round <= maxGapRounds; round++) {
+            List<SubtitleLine> gaps = new ArrayList<>();
+            List<String> previous = new ArrayList<>();
+            for (SubtitleLine line : batch) {
+                if (TranslationResponseParser.isSuspect(line.getEn(), line.getCn())) {
+                    gaps.add(line);
+                    previous.add(line.getCn());
+                }
+            }
+            if (gaps.isEmpty()) {
+                return;
+            }
+            log.info("Re-requesting {} of {} lines with missing translations (round {})", gaps.size(), batch.size(), round);
+            stats.recordGapRetry(gaps.size());
+            metrics.recordGapRetry(gaps.size());
+            // Providers only translate lines without a translation, so clear the echoed ones first
+            gaps.forEach(line -> line.setCn(""));
+            try {
+                translateBatchWithFallback(gaps, providerChain, stats);
+            } catch (RuntimeException e) {
+                log.warn("Gap retry failed for {} lines: {}", gaps.size(), e.getMessage());
+                return;
+            } finally {
+                for (int i = 0; i < gaps.size(); i++) {
+                    SubtitleLine line = gaps.get(i);
+                    if (line.getCn() == null || line.getCn().isEmpty()) {
+                        line.setCn(previous.get(i));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Runs the retry loop for one provider. Returns null on success, otherwise the last error.
+     * When {@code abandoned} turns true (a hedged sibling already won), failures are no longer
+     * charged to the provider's circuit breaker.
+     */
+    private RuntimeException translateWithProvider(String provider, TranslationService service, List<SubtitleLine> batch,
+                                                   TranslationStats stats, BooleanSupplier abandoned) {
+        RuntimeException lastError = null;
+        int attemptLimit = Math.max(1, maxAttempts);
+        int rateLimitWaits = 0;
+        int attempt = 0;
+        while (attempt < attemptLimit) {
+            attempt++;
+            try {
+                rateLimiter.acquire(provider, estimateTokens(batch));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return new RuntimeException("Translation interrupted while waiting for rate limiter", e);
+            }
+            long start = System.nanoTime();
+            try {
+                service.translate(batch);
+                long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+                log.info("Provider {} translated batch size {} in {} ms (attempt {})", provider, batch.size(), elapsedMs, attempt);
+                metrics.recordProviderCall(provider, PipelineMetrics.OUTCOME_SUCCESS, System.nanoTime() - start);
+                latencyWindows.computeIfAbsent(provider, key -> new LatencyWindow(LATENCY_WINDOW_SIZE)).record(elapsedMs);
+                onProviderSuccess(provider, elapsedMs);
+                stats.recordBatch(provider, batch.size());
+                return null;
+            } catch (IllegalStateException e) {
+                log.warn("Provider {} unavailable: {}", provider, e.getMessage());
+                metrics.recordProviderCall(provider, PipelineMetrics.OUTCOME_UNAVAILABLE, System.nanoTime() - start);
+                health(provider).releaseProbe();
+                return new RuntimeException(e);
+            } catch (Exception e) {
+                lastError = new RuntimeException(e);
+                if (abandoned.getAsBoolean()) {
+                    return lastError;
+                }
+                long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+                stats.recordRetry();
+                if (e instanceof ProviderHttpException httpError && httpError.isRateLimited()) {
+                    // Throttling is not a provider fault: wait it out instead of tripping the breaker or falling back
+                    long delayMs = Math.max(httpError.getRetryAfterMs(), backoffDelayMs(attempt));
+                    log.warn("Provider {} throttled (HTTP {}, attempt {}), backing off {} ms", provider, httpError.getStatusCode(), attempt, delayMs);
+                    metrics.recordProviderCall(provider, PipelineMetrics.OUTCOME_THROTTLED, System.nanoTime() - start);
+                    rateLimiter.pause(provider, delayMs);
+                    if (rateLimitWaits++ < maxRateLimitWaits) {
+                        attempt--;
+                    }
+                    continue;
+                }
+                log.warn("Provider {} failed attempt {} ({} ms): {}", provider, attempt, elapsedMs, e.getMessage());
+                metrics.recordProviderCall(provider, PipelineMetrics.OUTCOME_FAILURE, System.nanoTime() - start);
+                onProviderFailure(provider);
+                if (health(provider).state() != ProviderHealth.State.CLOSED) {
+                    // Circuit opened (or the half-open probe failed): move on to the next provider
+                    return lastError;
+                }
+                if (attempt < attemptLimit) {
+                    try {
+                        Thread.sleep(backoffDelayMs(attempt));
+                    } catch (InterruptedException ie) {
+                        Thread.currentThread().interrupt();
+                        return lastError;
+                    }
+                }
+            }
+        }
+        return lastError;
+    }
+
+    /**
+     * Sends the batch to the first healthy provider and, if it has not answered within its
+     * recent latency percentile, sends the same batch to the next healthy provider as well.
+     * Each request works on its own copy of the lines; the first successful copy is written
+     * back and the other request is cancelled.
+     */
+    private HedgeResult translateBatchHedged(List<SubtitleLine> batch, List<String> providerChain, TranslationStats stats) {
+        List<String> healthy = new ArrayList<>();
+        for (String provider : providerChain) {
+            // Only hedge between fully healthy providers; probing ones go through the sequential path
+            if (health(provider).state() == ProviderHealth.State.CLOSED && factory.getService(provider) != null) {
+                healthy.add(provider);
+            }
+            if (healthy.size() == 2) break;
+        }
+        if (healthy.size() < 2) {
+            // Nothing to hedge against; let the sequential path handle it
+            return new HedgeResult(false, null, Set.of());
+        }
+
+        String primary = healthy.get(0);
+        String secondary = healthy.get(1);
+        AtomicBoolean settled = new AtomicBoolean(false);
+        ExecutorCompletionService<HedgeAttempt> completion = new ExecutorCompletionService<>(hedgeExecutor);
+        List<Future<HedgeAttempt>> inFlight = new ArrayList<>();
+        RuntimeException lastError = null;
+
+        try {
+            inFlight.add(completion.submit(() -> runHedgeAttempt(primary, batch, stats, settled)));
+            long delayMs = hedgeDelayMs(primary);
+            Future<HedgeAttempt> first = completion.poll(delayMs, TimeUnit.MILLISECONDS);
+            if (first == null) {
+                log.info("Provider {} slower than {} ms, hedging batch of {} to {}", primary, delayMs, batch.size(), secondary);
+                metrics.recordHedge(PipelineMetrics.HEDGE_FIRED);
+                inFlight.add(completion.submit(() -> runHedgeAttempt(secondary, batch, stats, settled)));
+            }
+            for (int pending = inFlight.size(); pending > 0; pending--) {
+                Future<HedgeAttempt> done = first != null ? first : completion.take();
+                first = null;
+                HedgeAttempt attempt = done.get();
+                if (attempt.error() == null) {
+                    settled.set(true);
+                    copyTranslations(attempt.lines(), batch);
+                    if (inFlight.size() > 1) {
+                        metrics.recordHedge(primary.equals(attempt.provider()) ? PipelineMetrics.HEDGE_PRIMARY_WON : PipelineMetrics.HEDGE_SECONDARY_WON);
+                    }
+                    return new HedgeResult(true, null, Set.of(primary, secondary));
+                }
+                lastError = attempt.error();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Translation interrupted while hedging", e);
+        } catch (ExecutionException e) {
+            lastError = new RuntimeException(e.getCause());
+        } finally {
+            settled.set(true);
+            for (Future<HedgeAttempt> future : inFlight) {
+                future.cancel(true);
+            }
+        }
+        Set<String> tried = inFlight.size() > 1 ? Set.of(primary, secondary) : Set.of(primary);
+        return new HedgeResult(false, lastError, tried);
+    }
+
+    private HedgeAttempt runHedgeAttempt(String provider, List<SubtitleLine> batch, TranslationStats stats, AtomicBoolean settled) {
+        List<SubtitleLine> copy = new ArrayList<>(batch.size());
+        for (SubtitleLine line : batch) {
+            copy.add(new SubtitleLine(line.getStartTime(), line.getEndTime(), line.getEn(), line.getCn()));
+        }
+        RuntimeException error = translateWithProvider(provider, factory.getService(provider), copy, stats, settled::get);
+        return new HedgeAttempt(provider, copy, error);
+    }
+
+    private void copyTranslations(List<SubtitleLine> source, List<SubtitleLine> target) {
+        for (int i = 0; i < target.size(); i++) {
+            target.get(i).setCn(source.get(i).getCn());
+        }
+    }
+
+    /**
+     * How long to wait for a provider before hedging: its recent latency percentile,
+     * or a fixed initial delay until enough samples have been collected.
+     */
+    private long hedgeDelayMs(String provider) {
+        LatencyWindow window = latencyWindows.get(provider);
+        long delay = window != null && window.size() >= hedgingMinSamples
+                ? window.percentile(hedgingPercentile)
+                : hedgingInitialDelayMs;
+        return Math.max(hedgingMinDelayMs, delay);
+    }
+
+    private record HedgeAttempt(String provider, List<SubtitleLine> lines, RuntimeException error) {}
+
+    private record HedgeResult(boolean succeeded, RuntimeException lastError, Set<String> tried) {}
+
+    /**
+     * Exponential backoff with equal jitter: half the window is fixed, half is random,
+     * so concurrent retries against the same provider spread out.
+     */
+    private long backoffDelayMs(int attempt) {
+        long window = Math.min(maxBackoffMs, baseBackoffMs * (1L << Math.min(attempt - 1, 16)));
+        long half = Math.max(1, window / 2);
+        return half + ThreadLocalRandom.current().nextLong(half + 1);
+    }
+
+    /**
+     * Rough LLM token cost of a batch: English input plus a similar-sized Chinese output and the prompt.
+     */
+    private int estimateTokens(List<SubtitleLine> batch) {
+        int chars = 0;
+        for (SubtitleLine line : batch) {
+            if (line.getEn() != null) chars += line.getEn().length();
+        }
+        return PROMPT_TOKEN_OVERHEAD + (chars / 4) * 2;
+    }
+
     private int applyCache(List<SubtitleLine> candidates) {
         int hits = 0;
         for (SubtitleLine line : candidates) {
@@ -191,14 +620,34 @@ public class TranslationManager implements TranslationService {
         if (hits > 0) {
             log.info("Translation cache hits: {}", hits);
         }
+        metrics.recordCacheLookup(hits, candidates.size() - hits);
         return hits;
     }
 
+    /**
+     * Seeds the translation cache with an existing pair. A human translation replaces a cached
+     * machine one; a machine translation never replaces an entry. Returns true if the cache changed.
+     */
+    public boolean seedCache(String en, String cn, boolean human) {
+        if (en == null || en.isEmpty() || TranslationResponseParser.isSuspect(en, cn)) {
+            return false;
+        }
+        String key = hashKey(en);
+        if (human) {
+            return !cn.equals(translationCache.put(key, cn));
+        }
+        return translationCache.putIfAbsent(key, cn) == null;
+    }
+
+    public int cacheSize() {
+        return translationCache.size();
+    }
+
     private void updateCache(List<SubtitleLine> batch) {
         for (SubtitleLine line : batch) {
             if (line.getEn() == null || line.getEn().isEmpty()) continue;
             String cn = line.getCn();
-            if (cn != null && !cn.isEmpty()) {
+            if (!TranslationResponseParser.isSuspect(line.getEn(), cn)) {
                 translationCache.put(hashKey(line.getEn()), cn);
             }
         }
@@ -208,46 +657,9 @@ public class TranslationManager implements TranslationService {
         try {
             MessageDigest digest = MessageDigest.getInstance("SHA-256");
             byte[] hashed = digest.digest(text.getBytes(StandardCharsets.UTF_8));
-            StringBuilder sb = new StringBuilder(hashed.length * 2);
-            for (byte b : hashed) {
-                sb.append(String.format("%02x", b));
-            }
-            return sb.toString();
+            return HexFormat.of().formatHex(hashed);
         } catch (Exception e) {
             return text;
         }
     }
-
-    private boolean isCircuitOpen(String provider) {
-        FailureState state = failureStates.get(provider);
-        if (state == null || state.openUntilEpochMs <= 0) {
-            return false;
-        }
-        if (Instant.now().toEpochMilli() >= state.openUntilEpochMs) {
-            state.openUntilEpochMs = 0;
-            state.consecutiveFailures = 0;
-            return false;
-        }
-        return true;
-    }
-
-    private void recordFailure(String provider) {
-        FailureState state = failureStates.computeIfAbsent(provider, key -> new FailureState());
-        state.consecutiveFailures++;
-        if (state.consecutiveFailures >= Math.max(1, circuitBreakerThreshold)) {
-            state.openUntilEpochMs = Instant.now().toEpochMilli() + (long) circuitBreakerCooldownSeconds * 1000L;
-            log.warn("Provider {} circuit opened for {} seconds", provider, circuitBreakerCooldownSeconds);
-        }
-    }
-
-    private void recordSuccess(String provider) {
-        FailureState state = failureStates.computeIfAbsent(provider, key -> new FailureState());
-        state.consecutiveFailures = 0;
-        state.openUntilEpochMs = 0;
-    }
-
-    private static class FailureState {
-        private int consecutiveFailures = 0;
-        private long openUntilEpochMs = 0;
-    }
 }
@@ -0,0 +1,357 @@
+package com.velp.application;
+
+import com.velp.common.constants.AppConstants;
+import com.velp.domain.model.Transcript;
+import com.velp.infrastructure.metrics.PipelineMetrics;
+import com.velp.infrastructure.parser.SubtitleFileParser;
+import com.velp.infrastructure.parser.TranscriptJsonCodec;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Warms the translation cache at startup from the bilingual subs.json files already on disk.
+ *
+ * 翻译记忆持久化在存储目录下的追加写文件中：启动时先顺序加载该文件，再只扫描修改时间晚于水位线的
+ * subs.json（多线程并行解析），把新的 en→cn 对写入缓存并追加到文件，按批推进水位线。
+ * 与 zh 字幕轨文本一致的译文视为人工翻译，优先于机器翻译。多副本共享存储时只有持有文件锁的
+ * 节点写文件和水位线，其余节点只读。写入中途崩溃留下的残缺尾记录由持锁节点在追加前截掉，
+ * 否则新记录会接在残缺字节之后，之后的加载全部错位。
+ */
+@Slf4j
+@Component
+public class TranslationMemoryWarmer {
+
+    private static final String MEMORY_FILE = ".translation-memory.bin";
+    private static final String WATERMARK_FILE = ".translation-memory.properties";
+    private static final String LOCK_FILE = ".translation-memory.lock";
+    private static final String WATERMARK_KEY = "watermark";
+    private static final int FILES_PER_CHUNK = 64;
+
+    @Value("${velp.storage.path:downloads}")
+    private String storagePath;
+
+    @Value("${velp.llm.warm-start.enabled:true}")
+    private boolean enabled;
+
+    @Value("${velp.llm.warm-start.threads:4}")
+    private int threads;
+
+    @Value("${velp.llm.warm-start.max-entries:200000}")
+    private int maxEntries;
+
+    private final TranslationManager translationManager;
+    private final TranscriptJsonCodec transcriptCodec;
+    private final SubtitleFileParser subtitleParser;
+
+    public TranslationMemoryWarmer(TranslationManager translationManager, TranscriptJsonCodec transcriptCodec,
+                                   SubtitleFileParser subtitleParser, PipelineMetrics metrics) {
+        this.translationManager = translationManager;
+        this.transcriptCodec = transcriptCodec;
+        this.subtitleParser = subtitleParser;
+        metrics.gauge("velp.translation.cache.entries", translationManager::cacheSize);
+    }
+
+    private record Pair(String en, String cn, boolean human) {}
+
+    private record Scanned(long lastModified, List<Pair> pairs) {}
+
+    /**
+     * Result of reading the memory file: pairs seeded, and the offset just past the last
+     * complete record, which is where the next record has to be written.
+     */
+    private record Loaded(int pairs, long validLength) {}
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        if (!enabled) {
+            return;
+        }
+        CompletableFuture.runAsync(this::warm, runnable -> {
+            Thread thread = new Thread(runnable, "translation-memory-warmer");
+            thread.setDaemon(true);
+            thread.start();
+        });
+    }
+
+    private void warm() {
+        long startedAt = System.currentTimeMillis();
+        File root = new File(storagePath);
+        if (!root.isDirectory()) {
+            return;
+        }
+        File memoryFile = new File(root, MEMORY_FILE);
+        Loaded loaded = readRecords(memoryFile, 0, true);
+
+        try (FileChannel lockChannel = FileChannel.open(new File(root, LOCK_FILE).toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            FileLock lock = tryLock(lockChannel);
+            boolean persist = lock != null;
+            if (persist) {
+                // Records may have been appended by the previous lock holder since the load above
+                truncateTornTail(memoryFile, readRecords(memoryFile, loaded.validLength(), false).validLength());
+            }
+            int seeded = scanNewFiles(root, memoryFile, persist);
+            log.info("Translation memory warmed in {} ms: {} pairs loaded, {} pairs from new subtitles{}, {} cache entries",
+                    System.currentTimeMillis() - startedAt, loaded.pairs(), seeded, persist ? "" : " (read-only, another node holds the lock)",
+                    translationManager.cacheSize());
+            if (lock != null) {
+                lock.release();
+            }
+        } catch (Exception e) {
+            log.warn("Translation memory warm-up failed: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Reads the records from {@code offset} on, seeding the cache up to the entry cap when
+     * {@code seed} is set. Reading always continues to the end so the valid length covers
+     * every complete record; a record cut short by a crash, or bytes that do not decode,
+     * end the usable part of the file.
+     */
+    private Loaded readRecords(File memoryFile, long offset, boolean seed) {
+        if (!memoryFile.exists()) {
+            return new Loaded(0, 0);
+        }
+        int count = 0;
+        long validLength = offset;
+        try (FileInputStream file = new FileInputStream(memoryFile)) {
+            file.getChannel().position(offset);
+            CountingInputStream counter = new CountingInputStream(new BufferedInputStream(file, 64 * 1024), offset);
+            DataInputStream in = new DataInputStream(counter);
+            while (true) {
+                boolean human = in.readBoolean();
+                String en = in.readUTF();
+                String cn = in.readUTF();
+                validLength = counter.position();
+                if (seed && translationManager.cacheSize() < maxEntries) {
+                    translationManager.seedCache(en, cn, human);
+                    count++;
+                }
+            }
+        } catch (EOFException e) {
+            // End of file, or a record cut short by a crash: everything before it is usable
+        } catch (IOException e) {
+            log.warn("Failed to read translation memory {} past offset {}: {}", memoryFile, validLength, e.getMessage());
+        }
+        return new Loaded(count, validLength);
+    }
+
+    private void truncateTornTail(File memoryFile, long validLength) throws IOException {
+        if (!memoryFile.exists() || memoryFile.length() <= validLength) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(memoryFile.toPath(), StandardOpenOption.WRITE)) {
+            log.warn("Dropping {} trailing bytes of an incomplete record from translation memory {}",
+                    channel.size() - validLength, memoryFile);
+            channel.truncate(validLength);
+        }
+    }
+
+    /**
+     * Reads subs.json files newer than the watermark, oldest first, in chunks parsed in
+     * parallel; the watermark only advances once a whole chunk is in the cache and on disk.
+     */
+    private int scanNewFiles(File root, File memoryFile, boolean persist) throws IOException, InterruptedException {
+        File watermarkFile = new File(root, WATERMARK_FILE);
+        long watermark = readWatermark(watermarkFile);
+        File[] videoDirs = root.listFiles(file -> file.isDirectory() && !file.getName().startsWith("."));
+        if (videoDirs == null) {
+            return 0;
+        }
+        List<File> pending = new ArrayList<>();
+        for (File videoDir : videoDirs) {
+            File subs = new File(videoDir, AppConstants.Storage.SUBS_JSON);
+            if (subs.exists() && subs.lastModified() > watermark) {
+                pending.add(subs);
+            }
+        }
+        if (pending.isEmpty()) {
+            return 0;
+        }
+        pending.sort(Comparator.comparingLong(File::lastModified));
+
+        AtomicInteger index = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, threads), runnable -> {
+            Thread thread = new Thread(runnable, "translation-memory-scan-" + index.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        int seeded = 0;
+        try (DataOutputStream out = persist
+                ? new DataOutputStream(new BufferedOutputStream(new FileOutputStream(memoryFile, true), 64 * 1024))
+                : null) {
+            for (int start = 0; start < pending.size() && translationManager.cacheSize() < maxEntries; start += FILES_PER_CHUNK) {
+                List<CompletableFuture<Scanned>> chunk = new ArrayList<>();
+                for (File subs : pending.subList(start, Math.min(start + FILES_PER_CHUNK, pending.size()))) {
+                    chunk.add(CompletableFuture.supplyAsync(() -> scan(subs), pool));
+                }
+                long chunkWatermark = watermark;
+                for (CompletableFuture<Scanned> future : chunk) {
+                    Scanned scanned = future.join();
+                    chunkWatermark = Math.max(chunkWatermark, scanned.lastModified());
+                    for (Pair pair : scanned.pairs()) {
+                        if (translationManager.cacheSize() >= maxEntries && !pair.human()) {
+                            continue;
+                        }
+                        if (translationManager.seedCache(pair.en(), pair.cn(), pair.human())) {
+                            seeded++;
+                            if (out != null) {
+                                out.writeBoolean(pair.human());
+                                out.writeUTF(pair.en());
+                                out.writeUTF(pair.cn());
+                            }
+                        }
+                    }
+                }
+                if (out != null) {
+                    out.flush();
+                    writeWatermark(watermarkFile, chunkWatermark);
+                }
+                watermark = chunkWatermark;
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        return seeded;
+    }
+
+    /**
+     * Extracts the translated pairs of one video. A translation equal to a cue of one of the
+     * video's zh tracks came from that track rather than from a model.
+     */
+    private Scanned scan(File subsFile) {
+        long lastModified = subsFile.lastModified();
+        List<Pair> pairs = new ArrayList<>();
+        try {
+            Set<String> trackTexts = new HashSet<>();
+            File[] zhTracks = subsFile.getParentFile().listFiles((dir, name) ->
+                    name.endsWith(AppConstants.Storage.VTT_EXT) && name.contains(AppConstants.Storage.ZH_SUB_MARK));
+            if (zhTracks != null) {
+                for (File track : zhTracks) {
+                    Transcript zh = subtitleParser.parseVtt(track);
+                    for (int row = 0; row < zh.size(); row++) {
+                        trackTexts.add(zh.en(row));
+                    }
+                }
+            }
+            Transcript transcript = transcriptCodec.read(subsFile);
+            for (int row = 0; row < transcript.size(); row++) {
+                String en = transcript.en(row);
+                String cn = transcript.cn(row);
+                // writeUTF caps a record at 64 KB; real cues are far shorter
+                if (en != null && !en.isEmpty() && cn != null && !cn.isEmpty() && en.length() + cn.length() < 8192) {
+                    pairs.add(new Pair(en, cn, trackTexts.contains(cn)));
+                }
+            }
+        } catch (Exception e) {
+            log.debug("Skipping {} during translation memory warm-up: {}", subsFile, e.getMessage());
+        }
+        return new Scanned(lastModified, pairs);
+    }
+
+    private FileLock tryLock(FileChannel channel) {
+        try {
+            return channel.tryLock();
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private long readWatermark(File watermarkFile) {
+        if (!watermarkFile.exists()) {
+            return 0;
+        }
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(watermarkFile.toPath(), StandardCharsets.UTF_8)) {
+            properties.load(reader);
+            return Long.parseLong(properties.getProperty(WATERMARK_KEY, "0"));
+        } catch (Exception e) {
+            log.debug("Ignoring unreadable translation memory watermark: {}", e.getMessage());
+            return 0;
+        }
+    }
+
+    private void writeWatermark(File watermarkFile, long watermark) throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty(WATERMARK_KEY, Long.toString(watermark));
+        try (Writer writer = Files.newBufferedWriter(watermarkFile.toPath(), StandardCharsets.UTF_8)) {
+            properties.store(writer, "translation memory watermark (last subs.json mtime included)");
+        }
+    }
+
+    /**
+     * Tracks the file offset of the bytes handed to the DataInputStream above it.
+     */
+    private static class CountingInputStream extends FilterInputStream {
+
+        private long position;
+
+        CountingInputStream(InputStream in, long position) {
+            super(in);
+            this.position = position;
+        }
+
+        long position() {
+            return position;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                position++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int off, int len) throws IOException {
+            int n = super.read(buffer, off, len);
+            if (n > 0) {
+                position += n;
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            position += skipped;
+            return skipped;
+        }
+    }
+}
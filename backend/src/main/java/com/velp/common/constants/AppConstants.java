@@ -32,8 +32,11 @@ public final class AppConstants {
         public static final String JSON_EXT = ".json";
         public static final String MP4_EXT = ".mp4";
         public static final String SUBS_JSON = "subs.json";
+        public static final String SEARCH_SEGMENT = "search.seg";
+        public static final String ACCESS_MARKER = ".access";
         public static final String EN_SUB_MARK = ".en";
         public static final String ZH_SUB_MARK = ".zh";
+        public static final int SUBTITLE_INDEX_CACHE_SIZE = 32;
     }
 
     public static final class YtDlp {
@@ -42,10 +45,23 @@ public final class AppConstants {
         public static final String EXTRACTOR_ARGS_YT = "youtube:player_client=android";
         public static final String REFERER_YT = "https://www.youtube.com/";
         public static final String OUTPUT_TEMPLATE_BASE = "video.%(ext)s";
+        // Flat playlist entries only carry "url"; single videos resolve "webpage_url"
+        public static final String PRINT_ENTRY = "%(webpage_url,url)s\t%(title)s";
         public static final String DOWNLOAD_MARK = "[download]";
         public static final String PERCENT_MARK = "%";
     }
 
+    public static final class Stage {
+        public static final String METADATA = "metadata";
+        public static final String DOWNLOAD = "download";
+        public static final String PARSE = "parse";
+        public static final String TRANSLATE = "translate";
+        public static final String WRITE = "write";
+        public static final String STATUS_RUNNING = "running";
+        public static final String STATUS_SUCCESS = "success";
+        public static final String STATUS_FAILED = "failure";
+    }
+
     public static final class Subtitle {
         public static final String WEBVTT_HEADER = "WEBVTT";
         public static final String TIME_SEPARATOR = "-->";
@@ -54,6 +70,9 @@ public final class AppConstants {
 
     public static final class Messages {
         public static final String INIT = "正在初始化...";
+        public static final String RESUMING = "服务重启，正在从断点恢复任务...";
+        public static final String RETRYING = "正在从上次失败处重试任务...";
+        public static final String RESTORING_MEDIA = "视频文件已被清理，正在重新下载...";
         public static final String DOWNLOADING_YT = "正在从 YouTube 下载视频和字幕...";
         public static final String DOWNLOADING_PROGRESS = "正在下载: ";
         public static final String PARSING_SUBS = "正在解析字幕文件...";
@@ -0,0 +1,33 @@
+package com.velp.config;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.env.EnvironmentPostProcessor;
+import org.springframework.core.Ordered;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.MapPropertySource;
+
+import java.util.Map;
+
+/**
+ * Derives settings that depend on {@code velp.repository.type}.
+ *
+ * Redis is on the classpath in every mode, so actuator would otherwise add a Redis health
+ * indicator to a memory-mode node and report it DOWN whenever no Redis is reachable. The
+ * defaults are added with the lowest precedence, so an explicit setting still wins.
+ */
+public class RepositoryTypeEnvironmentPostProcessor implements EnvironmentPostProcessor, Ordered {
+
+    private static final String SOURCE_NAME = "velpRepositoryTypeDefaults";
+
+    @Override
+    public void postProcessEnvironment(ConfigurableEnvironment environment, SpringApplication application) {
+        boolean redis = "redis".equalsIgnoreCase(environment.getProperty("velp.repository.type", "memory").trim());
+        environment.getPropertySources().addLast(new MapPropertySource(SOURCE_NAME,
+                Map.of("management.health.redis.enabled", Boolean.toString(redis))));
+    }
+
+    @Override
+    public int getOrder() {
+        return Ordered.LOWEST_PRECEDENCE;
+    }
+}
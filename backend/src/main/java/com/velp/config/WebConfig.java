@@ -1,8 +1,13 @@
 package com.velp.config;
 
+import com.velp.infrastructure.storage.StorageManager;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.HandlerInterceptor;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
@@ -17,6 +22,12 @@ public class WebConfig implements WebMvcConfigurer {
     @Value("${velp.cors.allowed-origins:}")
     private String allowedOrigins;
 
+    private final StorageManager storageManager;
+
+    public WebConfig(StorageManager storageManager) {
+        this.storageManager = storageManager;
+    }
+
     @Override
     public void addResourceHandlers(ResourceHandlerRegistry registry) {
         String absPath = new File(storagePath).getAbsolutePath();
@@ -28,6 +39,22 @@ public class WebConfig implements WebMvcConfigurer {
                 .addResourceLocations("file:" + absPath);
     }
 
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        // 视频直接通过静态资源播放，在这里记录访问时间供存储淘汰（LRU）使用
+        registry.addInterceptor(new HandlerInterceptor() {
+            @Override
+            public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+                String path = request.getRequestURI().substring(request.getContextPath().length());
+                String[] parts = path.split("/");
+                if (parts.length > 2) {
+                    storageManager.recordAccess(parts[2]);
+                }
+                return true;
+            }
+        }).addPathPatterns("/downloads/**");
+    }
+
     @Override
     public void addCorsMappings(CorsRegistry registry) {
         // 如果配置了允许的源，使用配置的值；否则允许所有源（开发环境）
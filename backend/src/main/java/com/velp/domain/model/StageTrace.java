@@ -0,0 +1,25 @@
+package com.velp.domain.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class StageTrace {
+    private String stage;
+    private String status;
+    private long startedAt;
+    private long endedAt;
+    private long durationMs;
+    private long bytes;
+    private int lines;
+    private String provider;
+    private int retries;
+    private String error;
+
+    public StageTrace copy() {
+        return new StageTrace(stage, status, startedAt, endedAt, durationMs, bytes, lines, provider, retries, error);
+    }
+}
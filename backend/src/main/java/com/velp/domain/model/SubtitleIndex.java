@@ -0,0 +1,130 @@
+package com.velp.domain.model;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.stream.IntStream;
+
+/**
+ * Read-only interval index over a transcript.
+ *
+ * Rows are ordered by start time together with a running maximum of end times,
+ * so a time window can be located with two binary searches even when auto-generated
+ * cues overlap each other. The index only holds row numbers and millisecond columns;
+ * the text stays in the {@link Transcript}.
+ */
+public class SubtitleIndex {
+
+    private final Transcript transcript;
+    private final int[] order;
+    private final long[] startTimes;
+    private final long[] maxEndTimes;
+
+    public SubtitleIndex(Transcript transcript) {
+        this.transcript = transcript;
+        int size = transcript.size();
+        this.order = startOrder(transcript);
+        this.startTimes = new long[size];
+        this.maxEndTimes = new long[size];
+        long maxEnd = Long.MIN_VALUE;
+        for (int i = 0; i < size; i++) {
+            int row = order[i];
+            startTimes[i] = transcript.startMs(row);
+            maxEnd = Math.max(maxEnd, transcript.endMs(row));
+            maxEndTimes[i] = maxEnd;
+        }
+    }
+
+    private static int[] startOrder(Transcript transcript) {
+        int size = transcript.size();
+        boolean sorted = true;
+        for (int row = 1; row < size && sorted; row++) {
+            sorted = transcript.startMs(row - 1) <= transcript.startMs(row);
+        }
+        if (sorted) {
+            // The usual case: tracks come out of the parser in start order
+            return IntStream.range(0, size).toArray();
+        }
+        return IntStream.range(0, size)
+                .boxed()
+                .sorted(Comparator.comparingLong(transcript::startMs))
+                .mapToInt(Integer::intValue)
+                .toArray();
+    }
+
+    public Transcript transcript() {
+        return transcript;
+    }
+
+    public int size() {
+        return order.length;
+    }
+
+    /**
+     * End of the last cue in milliseconds, or 0 for an empty transcript.
+     */
+    public long lastEndMs() {
+        return order.length == 0 ? 0 : maxEndTimes[order.length - 1];
+    }
+
+    /**
+     * Every row in start time order.
+     */
+    public int[] all() {
+        return order.clone();
+    }
+
+    /**
+     * Returns the rows of every cue that overlaps the half-open window [from, to) seconds, in start time order.
+     */
+    public int[] window(double from, double to) {
+        if (order.length == 0 || to <= from) {
+            return new int[0];
+        }
+        double fromMs = from * 1000;
+        double toMs = to * 1000;
+        // First cue whose running max end passes "from": nothing before it can overlap.
+        int lo = firstIndexAbove(maxEndTimes, fromMs);
+        // First cue starting at or after "to": nothing from here on can overlap.
+        int hi = firstIndexAtLeast(startTimes, toMs);
+        if (lo >= hi) {
+            return new int[0];
+        }
+        int[] result = new int[hi - lo];
+        int count = 0;
+        for (int i = lo; i < hi; i++) {
+            int row = order[i];
+            if (transcript.endMs(row) > fromMs) {
+                result[count++] = row;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    private static int firstIndexAbove(long[] values, double key) {
+        int lo = 0;
+        int hi = values.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (values[mid] > key) {
+                hi = mid;
+            } else {
+                lo = mid + 1;
+            }
+        }
+        return lo;
+    }
+
+    private static int firstIndexAtLeast(long[] values, double key) {
+        int lo = 0;
+        int hi = values.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (values[mid] >= key) {
+                hi = mid;
+            } else {
+                lo = mid + 1;
+            }
+        }
+        return lo;
+    }
+}
@@ -0,0 +1,38 @@
+package com.velp.domain.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Last pipeline stage a task finished, persisted with the task so an interrupted
+ * run can pick up from there instead of starting over.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class TaskCheckpoint {
+    private String videoId;
+    private Stage stage;
+    private long updatedAt;
+
+    /**
+     * Copy taken under this checkpoint's lock, which is the lock the pipeline holds while advancing it.
+     */
+    public TaskCheckpoint copy() {
+        synchronized (this) {
+            return new TaskCheckpoint(videoId, stage, updatedAt);
+        }
+    }
+
+    public boolean reached(Stage other) {
+        return stage != null && stage.ordinal() >= other.ordinal();
+    }
+
+    public enum Stage {
+        STARTED,
+        DOWNLOADED,
+        PARSED,
+        TRANSLATED
+    }
+}
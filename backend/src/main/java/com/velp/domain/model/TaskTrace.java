@@ -0,0 +1,29 @@
+package com.velp.domain.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class TaskTrace {
+    private String taskId;
+    private List<StageTrace> stages = new ArrayList<>();
+
+    /**
+     * Deep copy taken under this trace's lock, which is the lock writers hold while adding stages.
+     */
+    public TaskTrace copy() {
+        synchronized (this) {
+            List<StageTrace> copied = new ArrayList<>(stages.size());
+            for (StageTrace stage : stages) {
+                copied.add(stage.copy());
+            }
+            return new TaskTrace(taskId, copied);
+        }
+    }
+}
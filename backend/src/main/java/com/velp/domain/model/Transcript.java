@@ -0,0 +1,242 @@
+package com.velp.domain.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Column-oriented subtitle track.
+ *
+ * Cue times are kept as milliseconds in two {@code long[]} columns and all English text in
+ * one shared string addressed by offsets, so a long transcript costs roughly its raw text
+ * plus a few words per cue instead of one object graph per cue. The Chinese column is the
+ * only mutable one, because translation fills it in place.
+ *
+ * {@link SubtitleLine} objects are only created at the edges that still need them: the rows
+ * handed to translation ({@link #translationView()}) and API responses.
+ */
+public final class Transcript {
+
+    private final int size;
+    private final long[] startMs;
+    private final long[] endMs;
+    private final String enPool;
+    private final int[] enOffsets;
+    private final BitSet enMissing;
+    private final String[] cn;
+
+    private Transcript(int size, long[] startMs, long[] endMs, String enPool, int[] enOffsets, BitSet enMissing, String[] cn) {
+        this.size = size;
+        this.startMs = startMs;
+        this.endMs = endMs;
+        this.enPool = enPool;
+        this.enOffsets = enOffsets;
+        this.enMissing = enMissing;
+        this.cn = cn;
+    }
+
+    public static Builder builder() {
+        return new Builder(64);
+    }
+
+    public static Transcript empty() {
+        return builder().build();
+    }
+
+    public static Transcript fromLines(List<SubtitleLine> lines) {
+        Builder builder = new Builder(lines.size());
+        for (SubtitleLine line : lines) {
+            builder.add(toMillis(line.getStartTime()), toMillis(line.getEndTime()), line.getEn(), line.getCn());
+        }
+        return builder.build();
+    }
+
+    public static long toMillis(double seconds) {
+        return Math.round(seconds * 1000);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public long startMs(int row) {
+        return startMs[row];
+    }
+
+    public long endMs(int row) {
+        return endMs[row];
+    }
+
+    public double startSeconds(int row) {
+        return startMs[row] / 1000.0;
+    }
+
+    public double endSeconds(int row) {
+        return endMs[row] / 1000.0;
+    }
+
+    public String en(int row) {
+        return enMissing.get(row) ? null : enPool.substring(enOffsets[row], enOffsets[row + 1]);
+    }
+
+    public String cn(int row) {
+        return cn[row];
+    }
+
+    public void setCn(int row, String value) {
+        cn[row] = value;
+    }
+
+    public boolean needsTranslation(int row) {
+        return (cn[row] == null || cn[row].isEmpty()) && !enMissing.get(row) && enOffsets[row + 1] > enOffsets[row];
+    }
+
+    public SubtitleLine line(int row) {
+        return new SubtitleLine(startSeconds(row), endSeconds(row), en(row), cn(row));
+    }
+
+    /**
+     * Fills the Chinese column from a second track (e.g. the zh subtitles), taking for every
+     * row the first cue of {@code other} that overlaps it in time. Both tracks are expected in
+     * start order, as VTT files are; a running maximum of end times keeps the sweep linear even
+     * when cues overlap. The other track's text is read from its English column, which is where
+     * the parser puts the text of any track.
+     */
+    public void mergeTranslations(Transcript other) {
+        if (other.size == 0) {
+            return;
+        }
+        long[] maxEnd = new long[other.size];
+        long running = Long.MIN_VALUE;
+        for (int j = 0; j < other.size; j++) {
+            running = Math.max(running, other.endMs[j]);
+            maxEnd[j] = running;
+        }
+        int first = 0;
+        for (int row = 0; row < size; row++) {
+            // Cues whose running max end is at or before this row's start can never overlap it or any later row
+            while (first < other.size && maxEnd[first] <= startMs[row]) {
+                first++;
+            }
+            for (int j = first; j < other.size && other.startMs[j] < endMs[row]; j++) {
+                if (Math.min(endMs[row], other.endMs[j]) > Math.max(startMs[row], other.startMs[j])) {
+                    cn[row] = other.en(j);
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Materialises only the rows that still need a translation, for the translation service.
+     */
+    public TranslationView translationView() {
+        int count = 0;
+        for (int row = 0; row < size; row++) {
+            if (needsTranslation(row)) count++;
+        }
+        int[] rows = new int[count];
+        List<SubtitleLine> lines = new ArrayList<>(count);
+        int next = 0;
+        for (int row = 0; row < size; row++) {
+            if (needsTranslation(row)) {
+                rows[next++] = row;
+                lines.add(line(row));
+            }
+        }
+        return new TranslationView(rows, lines);
+    }
+
+    /**
+     * Rows handed to translation together with the lines the translator fills in;
+     * {@link #writeBack()} copies finished translations into the transcript.
+     */
+    public final class TranslationView {
+        private final int[] rows;
+        private final List<SubtitleLine> lines;
+
+        private TranslationView(int[] rows, List<SubtitleLine> lines) {
+            this.rows = rows;
+            this.lines = lines;
+        }
+
+        public List<SubtitleLine> lines() {
+            return lines;
+        }
+
+        public boolean isEmpty() {
+            return rows.length == 0;
+        }
+
+        public int size() {
+            return rows.length;
+        }
+
+        public void writeBack() {
+            for (int i = 0; i < rows.length; i++) {
+                String translated = lines.get(i).getCn();
+                if (translated != null && !translated.isEmpty()) {
+                    cn[rows[i]] = translated;
+                }
+            }
+        }
+    }
+
+    public static final class Builder {
+        private int size;
+        private long[] startMs;
+        private long[] endMs;
+        private int[] enOffsets;
+        private String[] cn;
+        private final StringBuilder enPool = new StringBuilder();
+        private final BitSet enMissing = new BitSet();
+
+        private Builder(int capacity) {
+            int initial = Math.max(16, capacity);
+            startMs = new long[initial];
+            endMs = new long[initial];
+            enOffsets = new int[initial + 1];
+            cn = new String[initial];
+        }
+
+        public Builder add(long start, long end, String en, String cnText) {
+            if (size == startMs.length) {
+                int grown = size * 2;
+                startMs = Arrays.copyOf(startMs, grown);
+                endMs = Arrays.copyOf(endMs, grown);
+                enOffsets = Arrays.copyOf(enOffsets, grown + 1);
+                cn = Arrays.copyOf(cn, grown);
+            }
+            startMs[size] = start;
+            endMs[size] = end;
+            if (en == null) {
+                enMissing.set(size);
+            } else {
+                enPool.append(en);
+            }
+            cn[size] = cnText;
+            size++;
+            enOffsets[size] = enPool.length();
+            return this;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public Transcript build() {
+            return new Transcript(size,
+                    Arrays.copyOf(startMs, size),
+                    Arrays.copyOf(endMs, size),
+                    enPool.toString(),
+                    Arrays.copyOf(enOffsets, size + 1),
+                    (BitSet) enMissing.clone(),
+                    Arrays.copyOf(cn, size));
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.velp.domain.model;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Per-call translation counters filled in by the translation service so callers can
+ * see which providers served their lines and how many attempts were retried.
+ */
+public class TranslationStats {
+
+    private final Map<String, AtomicInteger> batchesByProvider = new ConcurrentHashMap<>();
+    private final AtomicInteger retries = new AtomicInteger();
+    private final AtomicInteger cacheHits = new AtomicInteger();
+    private final AtomicInteger translatedLines = new AtomicInteger();
+    private final AtomicInteger gapRetryLines = new AtomicInteger();
+
+    public void recordBatch(String provider, int lines) {
+        batchesByProvider.computeIfAbsent(provider, key -> new AtomicInteger()).incrementAndGet();
+        translatedLines.addAndGet(lines);
+    }
+
+    /**
+     * Credits a batch shared with other tasks: its providers, this caller's own lines, and the
+     * caller's share of the retries and gap lines, split by line count so that the per-task
+     * totals roughly sum to the shared batch instead of repeating it for every contributor.
+     */
+    public void recordSharedBatch(TranslationStats shared, int ownLines, int totalLines) {
+        shared.batchesByProvider.forEach((provider, count) ->
+                batchesByProvider.computeIfAbsent(provider, key -> new AtomicInteger()).addAndGet(count.get()));
+        retries.addAndGet(share(shared.getRetries(), ownLines, totalLines));
+        gapRetryLines.addAndGet(share(shared.getGapRetryLines(), ownLines, totalLines));
+        translatedLines.addAndGet(ownLines);
+    }
+
+    private static int share(int count, int ownLines, int totalLines) {
+        return totalLines <= 0 ? 0 : (int) Math.round((double) count * ownLines / totalLines);
+    }
+
+    public void recordRetry() {
+        retries.incrementAndGet();
+    }
+
+    public void recordGapRetry(int lines) {
+        gapRetryLines.addAndGet(lines);
+    }
+
+    public void recordCacheHits(int hits) {
+        cacheHits.addAndGet(hits);
+    }
+
+    public int getRetries() {
+        return retries.get();
+    }
+
+    public int getCacheHits() {
+        return cacheHits.get();
+    }
+
+    public int getGapRetryLines() {
+        return gapRetryLines.get();
+    }
+
+    public int getTranslatedLines() {
+        return translatedLines.get();
+    }
+
+    /**
+     * Providers that served at least one batch, e.g. "doubao:12,deepseek:1".
+     */
+    public String describeProviders() {
+        return batchesByProvider.entrySet().stream()
+                .map(e -> e.getKey() + ":" + e.getValue().get())
+                .collect(Collectors.joining(","));
+    }
+}
@@ -1,5 +1,8 @@
 package com.velp.domain.repository;
 
+import com.velp.domain.model.TaskCheckpoint;
+import com.velp.domain.model.TaskTrace;
+
 import java.util.List;
 import java.util.Optional;
 
@@ -9,6 +12,26 @@ public interface MediaRepository {
     void deleteFailedTasks();
     Optional<TaskStatus> getTaskStatus(String taskId);
     List<TaskEntry> getAllTasks();
+    void saveTaskTrace(String taskId, TaskTrace trace);
+    Optional<TaskTrace> getTaskTrace(String taskId);
+    void saveCheckpoint(String taskId, TaskCheckpoint checkpoint);
+    Optional<TaskCheckpoint> getCheckpoint(String taskId);
+
+    /**
+     * Atomically claims a content-addressed video directory for a task. Returns the task that
+     * holds the claim afterwards: {@code taskId} if the video was unclaimed, else the earlier claimant.
+     */
+    String claimVideo(String videoId, String taskId);
+
+    /**
+     * Moves a claim from {@code expectedHolder} to {@code taskId}; false if someone else holds it now.
+     */
+    boolean replaceVideoClaim(String videoId, String expectedHolder, String taskId);
+
+    /**
+     * Drops the claim if {@code taskId} still holds it.
+     */
+    void releaseVideoClaim(String videoId, String taskId);
     
     record TaskStatus(String status, int progress, String videoId, String error, String url, String title, long createdAt) {}
     record TaskEntry(String taskId, String status, int progress, String videoId, String url, String title, long createdAt) {}
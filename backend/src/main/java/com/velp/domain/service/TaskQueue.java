@@ -0,0 +1,33 @@
+package com.velp.domain.service;
+
+/**
+ * Hands submitted tasks to whichever worker has capacity to run them.
+ */
+public interface TaskQueue {
+
+    void enqueue(TaskJob job);
+
+    /**
+     * Starts pulling jobs; each job is passed to {@code handler} on a worker thread.
+     */
+    void start(TaskHandler handler);
+
+    /**
+     * Whether queued jobs survive a restart of this process. Non-durable queues lose their
+     * backlog, so interrupted tasks must be re-enqueued on startup.
+     */
+    default boolean durable() {
+        return false;
+    }
+
+    record TaskJob(String taskId, String url, String title) {}
+
+    interface TaskHandler {
+        void process(TaskJob job);
+
+        /**
+         * Called instead of {@link #process} when a job has been redelivered too many times.
+         */
+        void abandon(TaskJob job, String reason);
+    }
+}
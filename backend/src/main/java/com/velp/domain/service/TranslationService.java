@@ -1,6 +1,7 @@
 package com.velp.domain.service;
 
 import com.velp.domain.model.SubtitleLine;
+import com.velp.domain.model.TranslationStats;
 import java.util.List;
 
 public interface TranslationService {
@@ -8,4 +9,7 @@ public interface TranslationService {
     default void translate(List<SubtitleLine> subtitles, java.util.function.Consumer<Integer> progressCallback) {
         translate(subtitles);
     }
+    default void translate(List<SubtitleLine> subtitles, java.util.function.Consumer<Integer> progressCallback, TranslationStats stats) {
+        translate(subtitles, progressCallback);
+    }
 }
@@ -11,11 +11,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import java.net.URI;
-import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
-import java.time.Duration;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -38,14 +34,12 @@ public class DeepSeekTranslationService implements TranslationService {
     @Value("${velp.llm.request-timeout-seconds:20}")
     private int requestTimeoutSeconds;
 
-    private final HttpClient httpClient;
+    private final LlmHttpTransport transport;
     private final ObjectMapper objectMapper;
     private final TranslationResponseParser responseParser;
 
-    public DeepSeekTranslationService(ObjectMapper objectMapper, TranslationResponseParser responseParser) {
-        this.httpClient = HttpClient.newBuilder()
-                .connectTimeout(Duration.ofSeconds(10))
-                .build();
+    public DeepSeekTranslationService(ObjectMapper objectMapper, TranslationResponseParser responseParser, LlmHttpTransport transport) {
+        this.transport = transport;
         this.objectMapper = objectMapper;
         this.responseParser = responseParser;
     }
@@ -75,6 +69,9 @@ public class DeepSeekTranslationService implements TranslationService {
             if (progressCallback != null) {
                 progressCallback.accept(100);
             }
+        } catch (ProviderHttpException e) {
+            log.warn("DeepSeek translation rejected: HTTP {}", e.getStatusCode());
+            throw e;
         } catch (Exception e) {
             log.error("DeepSeek translation failed", e);
             throw new RuntimeException("DeepSeek Translation error: " + e.getMessage());
@@ -98,24 +95,14 @@ public class DeepSeekTranslationService implements TranslationService {
                 .put("role", AppConstants.Translation.ROLE_USER)
                 .put("content", inputJson);
 
-        String requestJson = objectMapper.writeValueAsString(requestBody);
-
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(baseUrl))
-                .header("Content-Type", "application/json")
-                .header("Authorization", "Bearer " + apiKey)
-                .timeout(Duration.ofSeconds(requestTimeoutSeconds))
-                .POST(HttpRequest.BodyPublishers.ofString(requestJson))
-                .build();
-
-        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+        HttpResponse<String> response = transport.postJson(baseUrl, apiKey, requestBody, requestTimeoutSeconds);
 
         if (response.statusCode() == 200) {
             JsonNode root = objectMapper.readTree(response.body());
             JsonNode choices = root.path("choices");
             if (choices.isArray() && choices.size() > 0) {
                 String content = choices.path(0).path("message").path("content").asText();
-                List<String> translations = responseParser.parseAndNormalize(content, batch.size(), AppConstants.Translation.PROVIDER_DEEPSEEK);
+                List<String> translations = responseParser.parseAndNormalize(content, englishLines, AppConstants.Translation.PROVIDER_DEEPSEEK);
                 for (int j = 0; j < translations.size(); j++) {
                     String translated = translations.get(j);
                     batch.get(j).setCn(translated == null ? "" : translated.trim());
@@ -124,7 +111,7 @@ public class DeepSeekTranslationService implements TranslationService {
                 throw new Exception("Unexpected DeepSeek response structure: " + response.body());
             }
         } else {
-            throw new Exception("HTTP " + response.statusCode() + ": " + response.body());
+            throw ProviderHttpException.from(response);
         }
     }
 }
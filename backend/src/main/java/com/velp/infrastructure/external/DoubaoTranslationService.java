@@ -11,11 +11,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import java.net.URI;
-import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
-import java.time.Duration;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -38,14 +34,12 @@ public class DoubaoTranslationService implements TranslationService {
     @Value("${velp.llm.request-timeout-seconds:20}")
     private int requestTimeoutSeconds;
 
-    private final HttpClient httpClient;
+    private final LlmHttpTransport transport;
     private final ObjectMapper objectMapper;
     private final TranslationResponseParser responseParser;
 
-    public DoubaoTranslationService(ObjectMapper objectMapper, TranslationResponseParser responseParser) {
-        this.httpClient = HttpClient.newBuilder()
-                .connectTimeout(Duration.ofSeconds(15))
-                .build();
+    public DoubaoTranslationService(ObjectMapper objectMapper, TranslationResponseParser responseParser, LlmHttpTransport transport) {
+        this.transport = transport;
         this.objectMapper = objectMapper;
         this.responseParser = responseParser;
     }
@@ -75,6 +69,9 @@ public class DoubaoTranslationService implements TranslationService {
             if (progressCallback != null) {
                 progressCallback.accept(100);
             }
+        } catch (ProviderHttpException e) {
+            log.warn("Doubao translation rejected: HTTP {}", e.getStatusCode());
+            throw e;
         } catch (Exception e) {
             log.error("Doubao translation failed", e);
             throw new RuntimeException("Doubao Translation error: " + e.getMessage());
@@ -99,17 +96,7 @@ public class DoubaoTranslationService implements TranslationService {
                 .put("type", AppConstants.Translation.TYPE_INPUT_TEXT)
                 .put("text", "Translate these English lines to Simplified Chinese. Output ONLY a JSON array of strings with the same length as the input array. No explanation, no markdown blocks. Input JSON array:\n" + inputJson);
 
-        String requestJson = objectMapper.writeValueAsString(requestBody);
-
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(baseUrl))
-                .header("Content-Type", "application/json")
-                .header("Authorization", "Bearer " + apiKey)
-                .timeout(Duration.ofSeconds(requestTimeoutSeconds))
-                .POST(HttpRequest.BodyPublishers.ofString(requestJson))
-                .build();
-
-        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+        HttpResponse<String> response = transport.postJson(baseUrl, apiKey, requestBody, requestTimeoutSeconds);
 
         if (response.statusCode() == 200) {
             JsonNode root = objectMapper.readTree(response.body());
@@ -137,7 +124,7 @@ public class DoubaoTranslationService implements TranslationService {
             }
 
             if (resultText != null && !resultText.isEmpty()) {
-                List<String> translations = responseParser.parseAndNormalize(resultText, batch.size(), AppConstants.Translation.PROVIDER_DOUBAO);
+                List<String> translations = responseParser.parseAndNormalize(resultText, englishLines, AppConstants.Translation.PROVIDER_DOUBAO);
                 for (int j = 0; j < translations.size(); j++) {
                     String translated = translations.get(j);
                     batch.get(j).setCn(translated == null ? "" : translated.trim());
@@ -146,7 +133,7 @@ public class DoubaoTranslationService implements TranslationService {
                 throw new Exception("Unexpected Doubao response structure: " + response.body());
             }
         } else {
-            throw new Exception("HTTP " + response.statusCode() + ": " + response.body());
+            throw ProviderHttpException.from(response);
         }
     }
 }
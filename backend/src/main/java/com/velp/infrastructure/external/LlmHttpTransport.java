@@ -0,0 +1,73 @@
+package com.velp.infrastructure.external;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * HTTP client shared by all LLM providers.
+ *
+ * One HttpClient means one connection pool: with HTTP/2 concurrent batches to the same
+ * provider are multiplexed over a single connection instead of each service opening its
+ * own. Calls are blocking: concurrency comes from TranslationManager's batch pool, while the
+ * client's small executor handles the connection I/O.
+ */
+@Component
+public class LlmHttpTransport {
+
+    private final HttpClient httpClient;
+    private final ExecutorService executor;
+    private final ObjectMapper objectMapper;
+
+    public LlmHttpTransport(
+            ObjectMapper objectMapper,
+            @Value("${velp.llm.connect-timeout-seconds:10}") int connectTimeoutSeconds,
+            @Value("${velp.llm.http.io-threads:4}") int ioThreads
+    ) {
+        this.objectMapper = objectMapper;
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(Math.max(1, ioThreads), runnable -> {
+            Thread thread = new Thread(runnable, "llm-http-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(Duration.ofSeconds(connectTimeoutSeconds))
+                .executor(executor)
+                .build();
+    }
+
+    /**
+     * Posts a JSON body with a bearer token and waits for the response. The body is serialised
+     * straight to bytes, without an intermediate String. Interrupting the caller (e.g. a hedged
+     * sibling already won) aborts the wait with an InterruptedException.
+     */
+    public HttpResponse<String> postJson(String url, String apiKey, Object body, int timeoutSeconds) throws IOException, InterruptedException {
+        byte[] payload = objectMapper.writeValueAsBytes(body);
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create(url))
+                .header("Content-Type", "application/json")
+                .header("Authorization", "Bearer " + apiKey)
+                .timeout(Duration.ofSeconds(timeoutSeconds))
+                .POST(HttpRequest.BodyPublishers.ofByteArray(payload))
+                .build();
+        return httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -10,11 +10,7 @@ import com.velp.domain.service.TranslationService;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import java.net.URI;
-import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
-import java.time.Duration;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -36,14 +32,12 @@ public class LlmTranslationService implements TranslationService {
     @Value("${velp.llm.request-timeout-seconds:20}")
     private int requestTimeoutSeconds;
 
-    private final HttpClient httpClient;
+    private final LlmHttpTransport transport;
     private final ObjectMapper objectMapper;
     private final TranslationResponseParser responseParser;
 
-    public LlmTranslationService(ObjectMapper objectMapper, TranslationResponseParser responseParser) {
-        this.httpClient = HttpClient.newBuilder()
-                .connectTimeout(Duration.ofSeconds(10))
-                .build();
+    public LlmTranslationService(ObjectMapper objectMapper, TranslationResponseParser responseParser, LlmHttpTransport transport) {
+        this.transport = transport;
         this.objectMapper = objectMapper;
         this.responseParser = responseParser;
     }
@@ -75,6 +69,8 @@ public class LlmTranslationService implements TranslationService {
             if (progressCallback != null) {
                 progressCallback.accept(100);
             }
+        } catch (ProviderHttpException e) {
+            throw e;
         } catch (Exception e) {
             throw new RuntimeException("AI Translation failed: " + e.getMessage());
         }
@@ -97,30 +93,20 @@ public class LlmTranslationService implements TranslationService {
         messages.addObject().put("role", "system").put("content", systemPrompt);
         messages.addObject().put("role", "user").put("content", inputJson);
 
-        String requestJson = objectMapper.writeValueAsString(requestBody);
-
         String apiUrl = baseUrl + (baseUrl.endsWith("/") ? "chat/completions" : "/chat/completions");
 
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(apiUrl))
-                .header("Content-Type", "application/json")
-                .header("Authorization", "Bearer " + apiKey)
-                .timeout(Duration.ofSeconds(requestTimeoutSeconds))
-                .POST(HttpRequest.BodyPublishers.ofString(requestJson))
-                .build();
-
-        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+        HttpResponse<String> response = transport.postJson(apiUrl, apiKey, requestBody, requestTimeoutSeconds);
 
         if (response.statusCode() == 200) {
             JsonNode root = objectMapper.readTree(response.body());
             String content = root.path("choices").get(0).path("message").path("content").asText();
-            List<String> translations = responseParser.parseAndNormalize(content, batch.size(), AppConstants.Translation.PROVIDER_LLM);
+            List<String> translations = responseParser.parseAndNormalize(content, englishLines, AppConstants.Translation.PROVIDER_LLM);
             for (int j = 0; j < translations.size(); j++) {
                 String translated = translations.get(j);
                 batch.get(j).setCn(translated == null ? "" : translated.trim());
             }
         } else {
-            throw new Exception("HTTP " + response.statusCode() + ": " + response.body());
+            throw ProviderHttpException.from(response);
         }
     }
 }
@@ -0,0 +1,225 @@
+package com.velp.infrastructure.external;
+
+import com.velp.infrastructure.metrics.PipelineMetrics;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Runs external processes under a watchdog.
+ *
+ * Output is drained on a separate reader thread, so the caller never blocks on a pipe.
+ * The caller only polls for exit and kills the process tree when it exceeds its wall-clock
+ * limit or stops producing output for the stall interval. The process is always reaped
+ * before {@link #run} returns, whatever the outcome.
+ */
+@Slf4j
+@Component
+public class ProcessSupervisor {
+
+    public static final String KILL_TIMEOUT = "timeout";
+    public static final String KILL_STALLED = "stalled";
+    public static final String KILL_INTERRUPTED = "interrupted";
+
+    private static final long POLL_INTERVAL_MS = 500;
+    private static final long TERMINATE_GRACE_MS = 5000;
+    private static final int OUTPUT_TAIL_LINES = 200;
+
+    private final PipelineMetrics metrics;
+    private final ExecutorService readers;
+
+    public ProcessSupervisor(PipelineMetrics metrics) {
+        this.metrics = metrics;
+        AtomicInteger counter = new AtomicInteger();
+        this.readers = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "process-reader-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Wall-clock and no-output limits for one process; a null stall disables stall detection.
+     */
+    public record Limits(Duration wallClock, Duration stall) {}
+
+    /**
+     * Exit code and the last lines of output. {@code outputTail} is combined stdout/stderr,
+     * or stdout alone when stderr was kept separate, in which case it is in {@code errorTail}.
+     * {@code killReason} is null when the process exited on its own.
+     */
+    public record Result(int exitCode, List<String> outputTail, List<String> errorTail, String killReason) {
+        public boolean succeeded() {
+            return killReason == null && exitCode == 0;
+        }
+
+        public String firstLine() {
+            return outputTail.isEmpty() ? null : outputTail.get(0);
+        }
+    }
+
+    public Result run(List<String> command, Limits limits, Consumer<String> lineListener) throws IOException, InterruptedException {
+        return run(command, limits, lineListener, true);
+    }
+
+    /**
+     * Runs the command; with {@code mergeStderr} false, stderr is drained into its own tail
+     * and never reaches the line listener, for callers that parse stdout as data.
+     */
+    public Result run(List<String> command, Limits limits, Consumer<String> lineListener, boolean mergeStderr) throws IOException, InterruptedException {
+        ProcessBuilder pb = new ProcessBuilder(command);
+        pb.redirectErrorStream(mergeStderr);
+        Process process = pb.start();
+        process.getOutputStream().close();
+
+        long startedAt = System.currentTimeMillis();
+        AtomicLong lastActivity = new AtomicLong(startedAt);
+        Deque<String> tail = new ArrayDeque<>();
+        Deque<String> errorTail = new ArrayDeque<>();
+        Future<?> reader = readers.submit(() -> drain(process.getInputStream(), lastActivity, tail, lineListener));
+        Future<?> errorReader = mergeStderr
+                ? null
+                : readers.submit(() -> drain(process.getErrorStream(), lastActivity, errorTail, null));
+
+        String killReason = null;
+        try {
+            while (!process.waitFor(POLL_INTERVAL_MS, TimeUnit.MILLISECONDS)) {
+                long now = System.currentTimeMillis();
+                if (limits.wallClock() != null && now - startedAt > limits.wallClock().toMillis()) {
+                    killReason = KILL_TIMEOUT;
+                } else if (limits.stall() != null && now - lastActivity.get() > limits.stall().toMillis()) {
+                    killReason = KILL_STALLED;
+                }
+                if (killReason != null) {
+                    log.warn("Killing {} (pid {}): {} after {} ms", command.get(0), process.pid(), killReason, now - startedAt);
+                    kill(process);
+                    metrics.recordProcessKill(killReason);
+                    break;
+                }
+            }
+        } catch (InterruptedException e) {
+            kill(process);
+            metrics.recordProcessKill(KILL_INTERRUPTED);
+            throw e;
+        } finally {
+            if (process.isAlive()) {
+                kill(process);
+            }
+            awaitReader(reader);
+            if (errorReader != null) {
+                awaitReader(errorReader);
+            }
+        }
+
+        return new Result(process.isAlive() ? -1 : process.exitValue(), snapshot(tail), snapshot(errorTail), killReason);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        readers.shutdownNow();
+    }
+
+    /**
+     * Splits output on both '\n' and '\r', so carriage-return progress updates count as activity.
+     */
+    private void drain(InputStream stream, AtomicLong lastActivity, Deque<String> tail, Consumer<String> lineListener) {
+        try (Reader in = new InputStreamReader(stream, StandardCharsets.UTF_8)) {
+            char[] buffer = new char[4096];
+            StringBuilder line = new StringBuilder();
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                lastActivity.set(System.currentTimeMillis());
+                for (int i = 0; i < read; i++) {
+                    char c = buffer[i];
+                    if (c == '\n' || c == '\r') {
+                        emit(line, tail, lineListener);
+                    } else {
+                        line.append(c);
+                    }
+                }
+            }
+            emit(line, tail, lineListener);
+        } catch (IOException e) {
+            // Stream closed because the process was killed
+        }
+    }
+
+    private List<String> snapshot(Deque<String> tail) {
+        synchronized (tail) {
+            return new ArrayList<>(tail);
+        }
+    }
+
+    private void emit(StringBuilder line, Deque<String> tail, Consumer<String> lineListener) {
+        if (line.length() == 0) {
+            return;
+        }
+        String text = line.toString();
+        line.setLength(0);
+        synchronized (tail) {
+            tail.addLast(text);
+            if (tail.size() > OUTPUT_TAIL_LINES) {
+                tail.removeFirst();
+            }
+        }
+        if (lineListener != null) {
+            try {
+                lineListener.accept(text);
+            } catch (Exception e) {
+                log.debug("Process output listener failed: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Terminates the process and its children (yt-dlp spawns ffmpeg), escalating to a forced
+     * kill after a short grace period, and waits for it to be reaped.
+     */
+    private void kill(Process process) {
+        process.descendants().forEach(ProcessHandle::destroy);
+        process.destroy();
+        try {
+            if (!process.waitFor(TERMINATE_GRACE_MS, TimeUnit.MILLISECONDS)) {
+                process.descendants().forEach(ProcessHandle::destroyForcibly);
+                process.destroyForcibly().waitFor(TERMINATE_GRACE_MS, TimeUnit.MILLISECONDS);
+            }
+        } catch (InterruptedException e) {
+            process.descendants().forEach(ProcessHandle::destroyForcibly);
+            process.destroyForcibly();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void awaitReader(Future<?> reader) {
+        try {
+            reader.get(TERMINATE_GRACE_MS, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            // A grandchild still holds the pipe open; stop waiting for it
+            reader.cancel(true);
+        } catch (InterruptedException e) {
+            reader.cancel(true);
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.debug("Process reader failed: {}", e.getMessage());
+        }
+    }
+}
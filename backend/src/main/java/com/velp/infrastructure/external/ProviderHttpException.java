@@ -0,0 +1,63 @@
+package com.velp.infrastructure.external;
+
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Non-200 answer from a translation provider. Keeps the status code and the
+ * provider's Retry-After hint so callers can tell throttling apart from real failures.
+ */
+public class ProviderHttpException extends RuntimeException {
+
+    private static final int TOO_MANY_REQUESTS = 429;
+    private static final int SERVICE_UNAVAILABLE = 503;
+
+    private final int statusCode;
+    private final long retryAfterMs;
+
+    public ProviderHttpException(int statusCode, long retryAfterMs, String message) {
+        super(message);
+        this.statusCode = statusCode;
+        this.retryAfterMs = retryAfterMs;
+    }
+
+    public static ProviderHttpException from(HttpResponse<String> response) {
+        long retryAfterMs = response.headers().firstValue("Retry-After")
+                .map(ProviderHttpException::parseRetryAfter)
+                .orElse(-1L);
+        return new ProviderHttpException(response.statusCode(), retryAfterMs,
+                "HTTP " + response.statusCode() + ": " + response.body());
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    /**
+     * Delay requested by the provider, or -1 when it did not send a usable Retry-After header.
+     */
+    public long getRetryAfterMs() {
+        return retryAfterMs;
+    }
+
+    public boolean isRateLimited() {
+        return statusCode == TOO_MANY_REQUESTS || (statusCode == SERVICE_UNAVAILABLE && retryAfterMs >= 0);
+    }
+
+    private static long parseRetryAfter(String value) {
+        String trimmed = value.trim();
+        try {
+            return Math.max(0, (long) (Double.parseDouble(trimmed) * 1000));
+        } catch (NumberFormatException ignored) {
+            // Not delta-seconds, try the HTTP-date form
+        }
+        try {
+            ZonedDateTime at = ZonedDateTime.parse(trimmed, DateTimeFormatter.RFC_1123_DATE_TIME);
+            return Math.max(0, Duration.between(ZonedDateTime.now(at.getZone()), at).toMillis());
+        } catch (Exception ignored) {
+            return -1;
+        }
+    }
+}
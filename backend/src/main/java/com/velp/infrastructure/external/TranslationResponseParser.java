@@ -19,6 +19,39 @@ public class TranslationResponseParser {
         this.objectMapper = objectMapper;
     }
 
+    /**
+     * A translation that should be requested again: missing, blank, or identical to an English
+     * source containing letters (the model echoed the input instead of translating it).
+     */
+    public static boolean isSuspect(String source, String translated) {
+        if (translated == null || translated.trim().isEmpty()) {
+            return true;
+        }
+        if (source == null) {
+            return false;
+        }
+        String trimmedSource = source.trim();
+        return trimmedSource.equals(translated.trim()) && trimmedSource.chars().anyMatch(Character::isLetter);
+    }
+
+    /**
+     * Normalises provider output to one translation per source line. Lines left missing or
+     * echoed back are only logged here; TranslationManager re-requests them once the batch is done.
+     */
+    public List<String> parseAndNormalize(String rawText, List<String> sources, String provider) {
+        List<String> translations = parseAndNormalize(rawText, sources.size(), provider);
+        long suspect = 0;
+        for (int i = 0; i < translations.size(); i++) {
+            if (isSuspect(sources.get(i), translations.get(i))) {
+                suspect++;
+            }
+        }
+        if (suspect > 0) {
+            log.warn("Provider {} left {} of {} lines missing or untranslated", provider, suspect, sources.size());
+        }
+        return translations;
+    }
+
     public List<String> parseAndNormalize(String rawText, int expectedSize, String provider) {
         if (expectedSize <= 0) {
             return Collections.emptyList();
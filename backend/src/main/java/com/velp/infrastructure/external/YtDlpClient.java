@@ -2,72 +2,176 @@ package com.velp.infrastructure.external;
 
 import com.velp.common.constants.AppConstants;
 import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
-import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.concurrent.TimeUnit;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 @Slf4j
 @Component
+@RequiredArgsConstructor
 public class YtDlpClient {
 
     @Value("${velp.ytdlp.path:yt-dlp}")
     private String ytDlpPath;
 
-    private String resolvedYtDlpPath;
+    @Value("${velp.ytdlp.download-timeout-minutes:30}")
+    private int downloadTimeoutMinutes;
 
+    @Value("${velp.ytdlp.metadata-timeout-seconds:60}")
+    private int metadataTimeoutSeconds;
+
+    @Value("${velp.ytdlp.stall-timeout-seconds:120}")
+    private int stallTimeoutSeconds;
+
+    @Value("${velp.ytdlp.playlist-timeout-seconds:300}")
+    private int playlistTimeoutSeconds;
+
+    private static final Duration VERSION_TIMEOUT = Duration.ofSeconds(15);
+
+    private final ProcessSupervisor processSupervisor;
+
+    @Value("${velp.ytdlp.resolution-cache:${velp.storage.path:downloads}/.yt-dlp-resolved.properties}")
+    private String resolutionCacheFile;
+
+    private volatile CompletableFuture<String> resolution;
+
+    /**
+     * Starts resolving the yt-dlp binary in the background instead of on the startup path;
+     * the first yt-dlp call waits for it if it has not finished yet.
+     */
     @PostConstruct
     public void init() {
-        resolvedYtDlpPath = resolveYtDlpPath();
-        String version = tryGetVersion(resolvedYtDlpPath);
-        if (version != null) {
-            log.info("Initialized YtDlpClient using {} (version: {})", resolvedYtDlpPath, version);
-        } else {
-            log.warn("Failed to initialize yt-dlp. Tried: {}", resolvedYtDlpPath);
+        resolution = CompletableFuture.supplyAsync(this::resolveCachedOrProbe, runnable -> {
+            Thread thread = new Thread(runnable, "yt-dlp-resolve");
+            thread.setDaemon(true);
+            thread.start();
+        });
+    }
+
+    private String ytDlp() {
+        return resolution.join();
+    }
+
+    private String resolveCachedOrProbe() {
+        try {
+            String cached = readResolutionCache();
+            if (cached != null) {
+                return cached;
+            }
+            long start = System.nanoTime();
+            String resolved = resolveYtDlpPath();
+            log.info("Resolved yt-dlp in {} ms", (System.nanoTime() - start) / 1_000_000);
+            return resolved;
+        } catch (Exception e) {
+            log.warn("yt-dlp resolution failed, falling back to {}: {}", ytDlpPath, e.getMessage());
+            return ytDlpPath;
         }
     }
 
     public String getVideoTitle(String url) {
         try {
             List<String> command = new ArrayList<>();
-            command.add(resolvedYtDlpPath);
+            command.add(ytDlp());
             command.add("--get-title");
             command.add("--no-playlist");
             command.add("--ignore-errors");
+            command.add("--no-warnings");
             command.add("--no-check-certificates");
             command.add("--extractor-args");
             command.add(AppConstants.YtDlp.EXTRACTOR_ARGS_YT);
             command.add(url);
 
-            ProcessBuilder pb = new ProcessBuilder(command);
-            Process process = pb.start();
-
-            try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
-                String title = reader.readLine();
-                if (title != null && !title.isEmpty()) {
-                    return title;
-                }
+            Duration limit = Duration.ofSeconds(metadataTimeoutSeconds);
+            // stdout only: warnings and errors on stderr must never become the title
+            ProcessSupervisor.Result result = processSupervisor.run(command, new ProcessSupervisor.Limits(limit, limit), null, false);
+            String title = result.firstLine();
+            if (result.succeeded() && title != null && !title.isBlank()) {
+                return title.trim();
             }
+            if (result.killReason() != null) {
+                log.warn("yt-dlp title lookup for {} was killed ({})", url, result.killReason());
+            } else {
+                log.warn("yt-dlp title lookup for {} failed with exit code {}: {}", url, result.exitCode(),
+                        String.join(" | ", result.errorTail()));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         } catch (Exception e) {
             log.warn("Failed to get video title for {}: {}", url, e.getMessage());
         }
         return "Unknown Video";
     }
 
+    /**
+     * One video found by {@link #listVideos}; the title is null when yt-dlp did not report one.
+     */
+    public record VideoEntry(String url, String title) {}
+
+    /**
+     * Expands playlists and plain video URLs into single videos with one yt-dlp call.
+     * {@code --flat-playlist} lists playlist entries (with their titles) without resolving
+     * each video, so a 200-video playlist costs one process instead of one per video.
+     * {@code --playlist-end} stops each playlist after {@code maxEntries}, so a caller
+     * enforcing a cap can pass cap + 1 and never wait for a huge channel to be enumerated.
+     */
+    public List<VideoEntry> listVideos(List<String> urls, int maxEntries) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(ytDlp());
+        command.add("--flat-playlist");
+        command.add("--ignore-errors");
+        command.add("--no-warnings");
+        command.add("--no-check-certificates");
+        command.add("--playlist-end");
+        command.add(String.valueOf(maxEntries));
+        command.add("--extractor-args");
+        command.add(AppConstants.YtDlp.EXTRACTOR_ARGS_YT);
+        command.add("--print");
+        command.add(AppConstants.YtDlp.PRINT_ENTRY);
+        command.addAll(urls);
+
+        // The tail kept by the supervisor is bounded, so entries are collected as they are printed
+        List<VideoEntry> entries = new ArrayList<>();
+        ProcessSupervisor.Limits limits = new ProcessSupervisor.Limits(
+                Duration.ofSeconds(playlistTimeoutSeconds), Duration.ofSeconds(metadataTimeoutSeconds));
+        ProcessSupervisor.Result result = processSupervisor.run(command, limits, line -> {
+            int tab = line.indexOf('\t');
+            if (tab > 0 && line.startsWith("http")) {
+                String title = line.substring(tab + 1).trim();
+                entries.add(new VideoEntry(line.substring(0, tab).trim(), title.isEmpty() || "NA".equals(title) ? null : title));
+            }
+        });
+        if (result.killReason() != null) {
+            throw new RuntimeException("yt-dlp playlist extraction " + result.killReason() + " after " + entries.size() + " entries");
+        }
+        if (entries.isEmpty() && result.exitCode() != 0) {
+            log.error("yt-dlp playlist extraction failed. Output:\n{}", String.join("\n", result.outputTail()));
+            throw new RuntimeException("yt-dlp exited with code " + result.exitCode() + " while listing videos");
+        }
+        return entries;
+    }
+
     public void downloadVideo(String url, String outputTemplate, java.util.function.Consumer<Integer> progressCallback) throws IOException, InterruptedException {
         List<String> command = new ArrayList<>();
-        command.add(resolvedYtDlpPath);
+        command.add(ytDlp());
         command.add("-f");
         command.add(AppConstants.YtDlp.FORMAT_BEST);
         command.add("--write-sub");
@@ -90,44 +194,37 @@ public class YtDlpClient {
         
         log.info("Executing command: {}", String.join(" ", command));
 
-        ProcessBuilder pb = new ProcessBuilder(command);
-        pb.redirectErrorStream(true);
-        Process process = pb.start();
-
-        List<String> outputLines = new ArrayList<>();
-        
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                outputLines.add(line);
-                
-                if (line.contains(AppConstants.YtDlp.DOWNLOAD_MARK) && line.contains(AppConstants.YtDlp.PERCENT_MARK)) {
-                    try {
-                        String[] parts = line.split("\\s+");
-                        for (String part : parts) {
-                            if (part.endsWith(AppConstants.YtDlp.PERCENT_MARK)) {
-                                String percentStr = part.substring(0, part.length() - 1);
-                                double percent = Double.parseDouble(percentStr);
-                                progressCallback.accept((int) percent);
-                                break;
-                            }
+        ProcessSupervisor.Limits limits = new ProcessSupervisor.Limits(
+                Duration.ofMinutes(downloadTimeoutMinutes), Duration.ofSeconds(stallTimeoutSeconds));
+        ProcessSupervisor.Result result = processSupervisor.run(command, limits, line -> {
+            if (line.contains(AppConstants.YtDlp.DOWNLOAD_MARK) && line.contains(AppConstants.YtDlp.PERCENT_MARK)) {
+                try {
+                    String[] parts = line.split("\\s+");
+                    for (String part : parts) {
+                        if (part.endsWith(AppConstants.YtDlp.PERCENT_MARK)) {
+                            String percentStr = part.substring(0, part.length() - 1);
+                            double percent = Double.parseDouble(percentStr);
+                            progressCallback.accept((int) percent);
+                            break;
                         }
-                    } catch (Exception e) {
-                        // Ignore parsing errors
                     }
+                } catch (Exception e) {
+                    // Ignore parsing errors
                 }
             }
-        }
+        });
 
-        boolean finished = process.waitFor(10, TimeUnit.MINUTES);
-        if (!finished) {
-            process.destroyForcibly();
-            throw new RuntimeException("yt-dlp timed out");
+        if (ProcessSupervisor.KILL_STALLED.equals(result.killReason())) {
+            log.error("yt-dlp stalled. Last output:\n{}", String.join("\n", result.outputTail()));
+            throw new RuntimeException("yt-dlp made no progress for " + stallTimeoutSeconds + " seconds");
         }
-        
-        int exitCode = process.exitValue();
+        if (result.killReason() != null) {
+            throw new RuntimeException("yt-dlp timed out after " + downloadTimeoutMinutes + " minutes");
+        }
+
+        int exitCode = result.exitCode();
         if (exitCode != 0) {
-            String fullOutput = String.join("\n", outputLines);
+            String fullOutput = String.join("\n", result.outputTail());
             log.error("yt-dlp failed. Output:\n{}", fullOutput);
             throw new RuntimeException("yt-dlp exited with code " + exitCode + ". See logs for output.");
         }
@@ -155,16 +252,110 @@ public class YtDlpClient {
         // 3. 尝试系统 PATH 中的命令
         candidates.addAll(isWindows ? Arrays.asList("yt-dlp.exe", "yt-dlp") : Arrays.asList("yt-dlp", "yt-dlp.exe"));
 
-        // 4. 按顺序尝试每个候选路径
-        for (String candidate : candidates) {
-            String version = tryGetVersion(candidate);
-            if (version != null) {
-                return candidate;
+        // 4. 并行探测所有候选路径（每次探测都要付出 Python 启动开销），按优先级取第一个可用的
+        List<String> distinct = new ArrayList<>(new LinkedHashSet<>(candidates));
+        ExecutorService probes = Executors.newFixedThreadPool(Math.min(distinct.size(), 4), runnable -> {
+            Thread thread = new Thread(runnable, "yt-dlp-probe");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<CompletableFuture<String>> versions = new ArrayList<>();
+            for (String candidate : distinct) {
+                versions.add(CompletableFuture.supplyAsync(() -> tryGetVersion(candidate), probes));
             }
+            for (int i = 0; i < distinct.size(); i++) {
+                String version = versions.get(i).join();
+                if (version != null) {
+                    log.info("Initialized YtDlpClient using {} (version: {})", distinct.get(i), version);
+                    writeResolutionCache(distinct.get(i), version);
+                    return distinct.get(i);
+                }
+            }
+        } finally {
+            probes.shutdownNow();
         }
 
         // 5. 如果都失败，返回配置的路径（即使可能无效）
-        return ytDlpPath != null ? ytDlpPath : (isWindows ? "yt-dlp.exe" : "yt-dlp");
+        String fallback = ytDlpPath != null ? ytDlpPath : (isWindows ? "yt-dlp.exe" : "yt-dlp");
+        log.warn("Failed to initialize yt-dlp. Tried: {}", distinct);
+        return fallback;
+    }
+
+    /**
+     * 读取上次解析结果。仅当配置路径未变且可执行文件的大小与修改时间都未变化（例如未执行 yt-dlp -U）时才复用，
+     * 否则返回 null 重新探测。
+     */
+    private String readResolutionCache() {
+        Path cacheFile = Paths.get(resolutionCacheFile);
+        if (!Files.isRegularFile(cacheFile)) {
+            return null;
+        }
+        try (Reader reader = Files.newBufferedReader(cacheFile, StandardCharsets.UTF_8)) {
+            Properties cached = new Properties();
+            cached.load(reader);
+            String command = cached.getProperty("command");
+            if (command == null || !String.valueOf(ytDlpPath).equals(cached.getProperty("configured"))) {
+                return null;
+            }
+            Path executable = locateExecutable(command);
+            if (executable == null
+                    || !String.valueOf(Files.size(executable)).equals(cached.getProperty("size"))
+                    || !String.valueOf(Files.getLastModifiedTime(executable).toMillis()).equals(cached.getProperty("modified"))) {
+                return null;
+            }
+            log.info("Initialized YtDlpClient using {} (version: {}, cached)", command, cached.getProperty("version"));
+            return command;
+        } catch (Exception e) {
+            log.debug("Ignoring unreadable yt-dlp resolution cache {}: {}", cacheFile, e.getMessage());
+            return null;
+        }
+    }
+
+    private void writeResolutionCache(String command, String version) {
+        try {
+            Path executable = locateExecutable(command);
+            if (executable == null) {
+                return;
+            }
+            Properties cached = new Properties();
+            cached.setProperty("configured", String.valueOf(ytDlpPath));
+            cached.setProperty("command", command);
+            cached.setProperty("version", version);
+            cached.setProperty("size", String.valueOf(Files.size(executable)));
+            cached.setProperty("modified", String.valueOf(Files.getLastModifiedTime(executable).toMillis()));
+            Path cacheFile = Paths.get(resolutionCacheFile);
+            if (cacheFile.getParent() != null) {
+                Files.createDirectories(cacheFile.getParent());
+            }
+            try (Writer writer = Files.newBufferedWriter(cacheFile, StandardCharsets.UTF_8)) {
+                cached.store(writer, "yt-dlp resolution cache");
+            }
+        } catch (Exception e) {
+            log.debug("Failed to write yt-dlp resolution cache: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 将命令解析为实际文件：含路径分隔符的按路径处理，否则在 PATH 中查找。
+     */
+    private Path locateExecutable(String command) {
+        if (command.contains("/") || command.contains(File.separator)) {
+            Path path = Paths.get(command);
+            return Files.isRegularFile(path) ? path : null;
+        }
+        String pathEnv = System.getenv("PATH");
+        if (pathEnv == null) {
+            return null;
+        }
+        for (String dir : pathEnv.split(File.pathSeparator)) {
+            if (dir.isEmpty()) continue;
+            Path path = Paths.get(dir, command);
+            if (Files.isRegularFile(path) && Files.isExecutable(path)) {
+                return path;
+            }
+        }
+        return null;
     }
     
     /**
@@ -257,13 +448,14 @@ public class YtDlpClient {
         }
 
         try {
-            Process process = new ProcessBuilder(command, "--version").start();
-            try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
-                String version = reader.readLine();
-                if (version != null && !version.isEmpty()) {
-                    return version;
-                }
+            ProcessSupervisor.Result result = processSupervisor.run(List.of(command, "--version"),
+                    new ProcessSupervisor.Limits(VERSION_TIMEOUT, null), null, false);
+            String version = result.firstLine();
+            if (result.succeeded() && version != null && !version.isEmpty()) {
+                return version;
             }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         } catch (Exception e) {
             // Ignore and try next candidate
         }
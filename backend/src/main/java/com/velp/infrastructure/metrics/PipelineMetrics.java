@@ -0,0 +1,137 @@
+package com.velp.infrastructure.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Central place for the pipeline's Micrometer meters, exported through /actuator/prometheus.
+ *
+ * Meter names are kept here so the dashboards only have to track one file.
+ */
+@Component
+public class PipelineMetrics {
+
+    public static final String OUTCOME_SUCCESS = "success";
+    public static final String OUTCOME_FAILURE = "failure";
+    public static final String OUTCOME_UNAVAILABLE = "unavailable";
+    public static final String OUTCOME_THROTTLED = "throttled";
+
+    public static final String HEDGE_FIRED = "fired";
+    public static final String HEDGE_PRIMARY_WON = "primary_won";
+    public static final String HEDGE_SECONDARY_WON = "secondary_won";
+
+    private final MeterRegistry registry;
+    private final AtomicInteger activeTasks = new AtomicInteger();
+    private final AtomicInteger inFlightBatches = new AtomicInteger();
+    private final Map<String, AtomicInteger> circuitStates = new ConcurrentHashMap<>();
+    private final Counter cacheHits;
+    private final Counter cacheMisses;
+    private final Counter nearCacheHits;
+    private final Counter nearCacheMisses;
+
+    public PipelineMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        registry.gauge("velp.tasks.active", activeTasks);
+        registry.gauge("velp.translation.batches.inflight", inFlightBatches);
+        this.cacheHits = registry.counter("velp.translation.cache", "result", "hit");
+        this.cacheMisses = registry.counter("velp.translation.cache", "result", "miss");
+        this.nearCacheHits = registry.counter("velp.repository.nearcache", "result", "hit");
+        this.nearCacheMisses = registry.counter("velp.repository.nearcache", "result", "miss");
+    }
+
+    public void recordStage(String stage, String outcome, long elapsedMs) {
+        Timer.builder("velp.pipeline.stage")
+                .tag("stage", stage)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(elapsedMs, TimeUnit.MILLISECONDS);
+    }
+
+    public void recordProviderCall(String provider, String outcome, long elapsedNanos) {
+        Timer.builder("velp.translation.provider.requests")
+                .tag("provider", provider)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(elapsedNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordHedge(String outcome) {
+        registry.counter("velp.translation.hedge", "outcome", outcome).increment();
+    }
+
+    public void recordGapRetry(int lines) {
+        registry.counter("velp.translation.gap.lines").increment(lines);
+    }
+
+    public void recordProcessKill(String reason) {
+        registry.counter("velp.process.killed", "reason", reason).increment();
+    }
+
+    public void recordSearch(long elapsedNanos) {
+        Timer.builder("velp.search.requests")
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(elapsedNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordStorageEviction(String reason, long bytes) {
+        registry.counter("velp.storage.evicted", "reason", reason).increment();
+        registry.counter("velp.storage.evicted.bytes", "reason", reason).increment(bytes);
+    }
+
+    public void recordCacheLookup(int hits, int misses) {
+        cacheHits.increment(hits);
+        cacheMisses.increment(misses);
+    }
+
+    public void recordNearCacheLookup(int hits, int misses) {
+        nearCacheHits.increment(hits);
+        nearCacheMisses.increment(misses);
+    }
+
+    public void setCircuitOpen(String provider, boolean open) {
+        circuitStates.computeIfAbsent(provider,
+                key -> registry.gauge("velp.translation.circuit.open", Tags.of("provider", key), new AtomicInteger()))
+                .set(open ? 1 : 0);
+    }
+
+    public <T> T timeRepository(String operation, Supplier<T> call) {
+        return registry.timer("velp.repository.operations", "operation", operation).record(call);
+    }
+
+    public void timeRepository(String operation, Runnable call) {
+        registry.timer("velp.repository.operations", "operation", operation).record(call);
+    }
+
+    public void gauge(String name, Supplier<Number> value) {
+        Gauge.builder(name, value).strongReference(true).register(registry);
+    }
+
+    public void taskStarted() {
+        activeTasks.incrementAndGet();
+    }
+
+    public void taskFinished() {
+        activeTasks.decrementAndGet();
+    }
+
+    public void batchStarted() {
+        inFlightBatches.incrementAndGet();
+    }
+
+    public void batchFinished() {
+        inFlightBatches.decrementAndGet();
+    }
+}
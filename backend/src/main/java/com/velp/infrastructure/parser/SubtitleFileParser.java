@@ -1,7 +1,7 @@
 package com.velp.infrastructure.parser;
 
 import com.velp.common.constants.AppConstants;
-import com.velp.domain.model.SubtitleLine;
+import com.velp.domain.model.Transcript;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
@@ -11,23 +11,22 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
-import java.util.ArrayList;
-import java.util.List;
 
 @Slf4j
 @Component
 public class SubtitleFileParser {
 
-    public List<SubtitleLine> parseVtt(File vttFile) {
-        List<SubtitleLine> lines = new ArrayList<>();
+    public Transcript parseVtt(File vttFile) {
+        Transcript.Builder lines = Transcript.builder();
         if (!vttFile.exists()) {
-            return lines;
+            return lines.build();
         }
 
         // Use UTF-8 explicitly
         try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(vttFile), StandardCharsets.UTF_8))) {
             String line;
-            SubtitleLine currentLine = null;
+            long currentStart = -1;
+            long currentEnd = -1;
             StringBuilder textBuffer = new StringBuilder();
 
             while ((line = reader.readLine()) != null) {
@@ -42,19 +41,17 @@ public class SubtitleFileParser {
                 }
 
                 if (line.contains(AppConstants.Subtitle.TIME_SEPARATOR)) {
-                    if (currentLine != null) {
-                        currentLine.setEn(textBuffer.toString().trim());
-                        lines.add(currentLine);
+                    if (currentStart >= 0) {
+                        lines.add(currentStart, currentEnd, textBuffer.toString().trim(), null);
                         textBuffer.setLength(0);
                     }
 
                     String[] times = line.split(AppConstants.Subtitle.TIME_SEPARATOR);
                     if (times.length == 2) {
-                        currentLine = new SubtitleLine();
-                        currentLine.setStartTime(parseTime(times[0].trim()));
-                        currentLine.setEndTime(parseTime(times[1].trim()));
+                        currentStart = parseTimeMs(times[0].trim());
+                        currentEnd = parseTimeMs(times[1].trim());
                     }
-                } else if (currentLine != null) {
+                } else if (currentStart >= 0) {
                     if (textBuffer.length() > 0) {
                         textBuffer.append(" ");
                     }
@@ -62,15 +59,18 @@ public class SubtitleFileParser {
                 }
             }
             
-            if (currentLine != null) {
-                currentLine.setEn(textBuffer.toString().trim());
-                lines.add(currentLine);
+            if (currentStart >= 0) {
+                lines.add(currentStart, currentEnd, textBuffer.toString().trim(), null);
             }
 
         } catch (IOException e) {
             log.error("Failed to parse VTT file: {}", vttFile.getAbsolutePath(), e);
         }
-        return lines;
+        return lines.build();
+    }
+
+    private long parseTimeMs(String timeString) {
+        return Transcript.toMillis(parseTime(timeString));
     }
 
     private double parseTime(String timeString) {
@@ -88,21 +88,11 @@ public class SubtitleFileParser {
         return 0.0;
     }
 
-    public List<SubtitleLine> mergeSubtitles(List<SubtitleLine> enSubs, List<SubtitleLine> cnSubs) {
-        for (SubtitleLine en : enSubs) {
-            for (SubtitleLine cn : cnSubs) {
-                if (isOverlapping(en, cn)) {
-                    en.setCn(cn.getEn()); 
-                    break;
-                }
-            }
-        }
+    /**
+     * Pairs each English cue with the first overlapping cue of the Chinese track.
+     */
+    public Transcript mergeSubtitles(Transcript enSubs, Transcript cnSubs) {
+        enSubs.mergeTranslations(cnSubs);
         return enSubs;
     }
-
-    private boolean isOverlapping(SubtitleLine s1, SubtitleLine s2) {
-        double start = Math.max(s1.getStartTime(), s2.getStartTime());
-        double end = Math.min(s1.getEndTime(), s2.getEndTime());
-        return end > start;
-    }
 }
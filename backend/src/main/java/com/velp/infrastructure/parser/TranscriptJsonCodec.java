@@ -0,0 +1,102 @@
+package com.velp.infrastructure.parser;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.velp.domain.model.Transcript;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Streams a {@link Transcript} to and from subs.json, and into course responses, without
+ * building per-cue objects.
+ *
+ * The file format is unchanged: an array of {startTime, endTime, en, cn} objects with
+ * times in seconds, the same shape Jackson produced for a {@code List<SubtitleLine>}.
+ */
+@Component
+public class TranscriptJsonCodec {
+
+    private static final String START_TIME = "startTime";
+    private static final String END_TIME = "endTime";
+    private static final String EN = "en";
+    private static final String CN = "cn";
+
+    private final JsonFactory jsonFactory;
+
+    public TranscriptJsonCodec(ObjectMapper objectMapper) {
+        this.jsonFactory = objectMapper.getFactory();
+    }
+
+    public void write(File file, Transcript transcript) throws IOException {
+        try (JsonGenerator generator = jsonFactory.createGenerator(file, JsonEncoding.UTF8)) {
+            generator.writeStartArray();
+            for (int row = 0; row < transcript.size(); row++) {
+                writeCue(generator, transcript, row);
+            }
+            generator.writeEndArray();
+        }
+    }
+
+    /**
+     * Writes the course detail body ({title, videoUrl, subtitles}) straight to the response
+     * stream. The stream itself is left open for the container to close.
+     */
+    public void writeCourseDetail(OutputStream out, String title, String videoUrl, Transcript transcript, int[] rows) throws IOException {
+        try (JsonGenerator generator = jsonFactory.createGenerator(out, JsonEncoding.UTF8)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.writeStartObject();
+            generator.writeStringField("title", title);
+            generator.writeStringField("videoUrl", videoUrl);
+            generator.writeArrayFieldStart("subtitles");
+            for (int row : rows) {
+                writeCue(generator, transcript, row);
+            }
+            generator.writeEndArray();
+            generator.writeEndObject();
+        }
+    }
+
+    private void writeCue(JsonGenerator generator, Transcript transcript, int row) throws IOException {
+        generator.writeStartObject();
+        generator.writeNumberField(START_TIME, transcript.startSeconds(row));
+        generator.writeNumberField(END_TIME, transcript.endSeconds(row));
+        generator.writeStringField(EN, transcript.en(row));
+        generator.writeStringField(CN, transcript.cn(row));
+        generator.writeEndObject();
+    }
+
+    public Transcript read(File file) throws IOException {
+        Transcript.Builder builder = Transcript.builder();
+        try (JsonParser parser = jsonFactory.createParser(file)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IOException("Expected a JSON array in " + file.getName());
+            }
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                long start = 0;
+                long end = 0;
+                String en = null;
+                String cn = null;
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = parser.getCurrentName();
+                    JsonToken value = parser.nextToken();
+                    switch (field) {
+                        case START_TIME -> start = Transcript.toMillis(parser.getValueAsDouble());
+                        case END_TIME -> end = Transcript.toMillis(parser.getValueAsDouble());
+                        case EN -> en = value == JsonToken.VALUE_NULL ? null : parser.getText();
+                        case CN -> cn = value == JsonToken.VALUE_NULL ? null : parser.getText();
+                        default -> parser.skipChildren();
+                    }
+                }
+                builder.add(start, end, en, cn);
+            }
+        }
+        return builder.build();
+    }
+}
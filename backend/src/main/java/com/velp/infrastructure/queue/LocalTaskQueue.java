@@ -0,0 +1,61 @@
+package com.velp.infrastructure.queue;
+
+import com.velp.domain.service.TaskQueue;
+import com.velp.infrastructure.metrics.PipelineMetrics;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 单机模式下的任务队列：固定数量的工作线程按提交顺序处理任务。
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "velp.repository.type", havingValue = "memory", matchIfMissing = true)
+public class LocalTaskQueue implements TaskQueue {
+
+    private final ThreadPoolExecutor workers;
+    private volatile TaskHandler handler;
+
+    public LocalTaskQueue(@Value("${velp.worker.concurrency:2}") int concurrency, PipelineMetrics metrics) {
+        AtomicInteger threadIndex = new AtomicInteger();
+        int size = Math.max(1, concurrency);
+        this.workers = new ThreadPoolExecutor(size, size, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "task-worker-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        metrics.gauge("velp.queue.backlog", () -> workers.getQueue().size());
+        // Jobs waiting in this JVM are all the jobs there are, so the executor queue is the queued count
+        metrics.gauge("velp.tasks.queued", () -> workers.getQueue().size());
+    }
+
+    @Override
+    public void enqueue(TaskJob job) {
+        workers.execute(() -> {
+            TaskHandler current = handler;
+            if (current == null) {
+                log.error("Task {} dequeued before a handler was registered", job.taskId());
+                return;
+            }
+            current.process(job);
+        });
+    }
+
+    @Override
+    public void start(TaskHandler handler) {
+        this.handler = handler;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+}
@@ -0,0 +1,337 @@
+package com.velp.infrastructure.queue;
+
+import com.velp.domain.service.TaskQueue;
+import com.velp.infrastructure.metrics.PipelineMetrics;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.connection.RedisStreamCommands;
+import org.springframework.data.redis.connection.stream.Consumer;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.connection.stream.PendingMessage;
+import org.springframework.data.redis.connection.stream.PendingMessages;
+import org.springframework.data.redis.connection.stream.PendingMessagesSummary;
+import org.springframework.data.redis.connection.stream.ReadOffset;
+import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.data.redis.connection.stream.StreamOffset;
+import org.springframework.data.redis.connection.stream.StreamReadOptions;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 基于 Redis Streams 消费组的分布式任务队列。
+ *
+ * 1. 每个副本以独立的 consumer 身份加入同一个消费组，只在有空闲并发槽位时才拉取新任务，
+ *    从而把下载与翻译负载分摊到所有副本上。
+ * 2. 处理中的任务通过定期 XCLAIM（JUSTID，不增加投递次数）续租；
+ *    副本宕机后租约过期，其他副本会把这些挂起的任务认领过来重新执行。
+ *    认领在拉取线程中、用拉取前已持有的空闲槽位完成，避免与 XREADGROUP 争抢槽位而永远认领不到。
+ * 3. 超过最大投递次数的任务视为毒消息，确认并交给 handler 标记失败。
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "velp.repository.type", havingValue = "redis")
+public class RedisStreamTaskQueue implements TaskQueue {
+
+    private static final String STREAM_KEY = "velp:jobs";
+    private static final String GROUP = "velp-workers";
+    private static final int PENDING_PAGE_SIZE = 100;
+
+    private final StringRedisTemplate redisTemplate;
+    private final int concurrency;
+    private final Duration lease;
+    private final int maxDeliveries;
+    private final String consumerName;
+    private final Semaphore capacity;
+    private final Map<RecordId, TaskJob> inFlight = new ConcurrentHashMap<>();
+    private final ExecutorService workers;
+    private final ScheduledExecutorService scheduler;
+
+    private volatile boolean running;
+    private volatile TaskHandler handler;
+
+    public RedisStreamTaskQueue(StringRedisTemplate redisTemplate,
+                                PipelineMetrics metrics,
+                                @Value("${velp.worker.concurrency:2}") int concurrency,
+                                @Value("${velp.worker.lease-seconds:60}") int leaseSeconds,
+                                @Value("${velp.worker.max-deliveries:3}") int maxDeliveries) {
+        this.redisTemplate = redisTemplate;
+        this.concurrency = Math.max(1, concurrency);
+        this.lease = Duration.ofSeconds(Math.max(3, leaseSeconds));
+        this.maxDeliveries = Math.max(1, maxDeliveries);
+        this.consumerName = resolveHostName() + "-" + UUID.randomUUID().toString().substring(0, 8);
+        this.capacity = new Semaphore(this.concurrency);
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(this.concurrency, runnable -> daemon(runnable, "task-worker-" + threadIndex.incrementAndGet()));
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> daemon(runnable, "task-queue-lease"));
+        metrics.gauge("velp.queue.backlog", this::pendingBacklog);
+        // 由共享流计算，而不是各节点自己的计数：提交和消费往往不在同一个节点
+        metrics.gauge("velp.tasks.queued", this::undeliveredBacklog);
+        metrics.gauge("velp.queue.inflight", inFlight::size);
+    }
+
+    @Override
+    public void enqueue(TaskJob job) {
+        redisTemplate.opsForStream().add(STREAM_KEY, Map.of(
+                "taskId", job.taskId(),
+                "url", job.url(),
+                "title", job.title() == null ? "" : job.title()));
+    }
+
+    @Override
+    public synchronized void start(TaskHandler handler) {
+        if (running) return;
+        this.handler = handler;
+        ensureGroup();
+        running = true;
+        Thread poller = daemon(this::pollLoop, "task-queue-poller");
+        poller.start();
+        long heartbeatMs = lease.toMillis() / 3;
+        scheduler.scheduleAtFixedRate(this::renewLeases, heartbeatMs, heartbeatMs, TimeUnit.MILLISECONDS);
+        log.info("Task queue consumer {} started (concurrency: {}, lease: {}s)", consumerName, concurrency, lease.toSeconds());
+    }
+
+    @Override
+    public boolean durable() {
+        return true;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        scheduler.shutdownNow();
+        // 未确认的任务保留在 PEL 中，租约过期后由其他副本接管
+        workers.shutdownNow();
+    }
+
+    private void pollLoop() {
+        Consumer consumer = Consumer.from(GROUP, consumerName);
+        StreamOffset<String> offset = StreamOffset.create(STREAM_KEY, ReadOffset.lastConsumed());
+        long nextReclaimAt = 0;
+        while (running) {
+            int free;
+            try {
+                capacity.acquire();
+                free = 1 + capacity.drainPermits();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            long now = System.currentTimeMillis();
+            if (now >= nextReclaimAt) {
+                // 先用手上的槽位接管超时任务，剩余槽位再去读新任务
+                free -= reclaimStalled(free);
+                nextReclaimAt = now + lease.toMillis() / 2;
+                if (free == 0) {
+                    continue;
+                }
+            }
+            List<MapRecord<String, Object, Object>> records;
+            try {
+                records = redisTemplate.opsForStream().read(consumer,
+                        StreamReadOptions.empty().count(free).block(Duration.ofSeconds(2)), offset);
+            } catch (Exception e) {
+                capacity.release(free);
+                if (running) {
+                    log.warn("Failed to read from task stream: {}", e.getMessage());
+                    sleepQuietly(1000);
+                }
+                continue;
+            }
+            int received = records == null ? 0 : records.size();
+            capacity.release(free - received);
+            if (records != null) {
+                records.forEach(this::dispatch);
+            }
+        }
+    }
+
+    /**
+     * Runs one job on a worker thread. The caller must already hold one capacity permit for it.
+     */
+    private void dispatch(MapRecord<String, Object, Object> record) {
+        TaskJob job = toJob(record);
+        inFlight.put(record.getId(), job);
+        try {
+            workers.execute(() -> {
+                try {
+                    handler.process(job);
+                } catch (Exception e) {
+                    log.error("Task {} handler failed", job.taskId(), e);
+                } finally {
+                    complete(record.getId());
+                }
+            });
+        } catch (Exception e) {
+            // 线程池已关闭：保留在 PEL 中等待其他副本认领
+            inFlight.remove(record.getId());
+            capacity.release();
+        }
+    }
+
+    private void complete(RecordId id) {
+        try {
+            redisTemplate.opsForStream().acknowledge(STREAM_KEY, GROUP, id);
+            redisTemplate.opsForStream().delete(STREAM_KEY, id);
+        } catch (Exception e) {
+            log.warn("Failed to acknowledge job {}: {}", id, e.getMessage());
+        } finally {
+            inFlight.remove(id);
+            capacity.release();
+        }
+    }
+
+    /**
+     * Heartbeat: re-claiming our own in-flight entries resets their idle time, so other
+     * replicas keep treating them as owned.
+     */
+    private void renewLeases() {
+        if (inFlight.isEmpty()) return;
+        RecordId[] ids = inFlight.keySet().toArray(new RecordId[0]);
+        try {
+            redisTemplate.execute((RedisCallback<List<RecordId>>) connection -> connection.streamCommands().xClaimJustId(
+                    STREAM_KEY.getBytes(StandardCharsets.UTF_8), GROUP, consumerName,
+                    RedisStreamCommands.XClaimOptions.minIdle(Duration.ZERO).ids(ids)));
+        } catch (Exception e) {
+            log.warn("Failed to renew task leases: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Takes over jobs whose owner stopped renewing its lease, using permits the caller
+     * already holds, and returns how many of them were used. The whole pending list is paged
+     * through, so stalled entries behind a long run of healthy ones are still found; poisoned
+     * entries are abandoned even when no permit is left.
+     */
+    private int reclaimStalled(int permits) {
+        int used = 0;
+        try {
+            Range<String> page = Range.unbounded();
+            while (running) {
+                PendingMessages pending = redisTemplate.opsForStream().pending(STREAM_KEY, GROUP, page, PENDING_PAGE_SIZE);
+                if (pending == null || pending.isEmpty()) {
+                    break;
+                }
+                RecordId last = null;
+                for (PendingMessage message : pending) {
+                    last = message.getId();
+                    if (consumerName.equals(message.getConsumerName())
+                            || message.getElapsedTimeSinceLastDelivery().compareTo(lease) < 0) {
+                        continue;
+                    }
+                    boolean poisoned = message.getTotalDeliveryCount() >= maxDeliveries;
+                    if (!poisoned && used >= permits) {
+                        continue;
+                    }
+                    List<MapRecord<String, Object, Object>> claimed = redisTemplate.opsForStream()
+                            .claim(STREAM_KEY, GROUP, consumerName, lease, message.getId());
+                    if (claimed == null || claimed.isEmpty()) {
+                        // 其他副本抢先认领，或原持有者恰好续租
+                        continue;
+                    }
+                    MapRecord<String, Object, Object> record = claimed.get(0);
+                    if (poisoned) {
+                        TaskJob job = toJob(record);
+                        log.error("Task {} abandoned after {} deliveries", job.taskId(), message.getTotalDeliveryCount());
+                        redisTemplate.opsForStream().acknowledge(STREAM_KEY, GROUP, record.getId());
+                        redisTemplate.opsForStream().delete(STREAM_KEY, record.getId());
+                        handler.abandon(job, "任务多次中断，已放弃执行");
+                        continue;
+                    }
+                    log.warn("Reclaimed stalled task {} from consumer {}", record.getValue().get("taskId"), message.getConsumerName());
+                    used++;
+                    dispatch(record);
+                }
+                if (pending.size() < PENDING_PAGE_SIZE || last == null) {
+                    break;
+                }
+                // 游标翻页：下一页从最后一条之后的 ID 开始
+                page = Range.rightUnbounded(Range.Bound.inclusive(successor(last)));
+            }
+        } catch (Exception e) {
+            log.warn("Failed to reclaim stalled tasks: {}", e.getMessage());
+        }
+        return used;
+    }
+
+    private static String successor(RecordId id) {
+        return id.getTimestamp() + "-" + (id.getSequence() + 1);
+    }
+
+    private void ensureGroup() {
+        try {
+            redisTemplate.opsForStream().createGroup(STREAM_KEY, ReadOffset.from("0"), GROUP);
+        } catch (Exception e) {
+            // BUSYGROUP: 消费组已存在
+            log.debug("Consumer group {} already exists: {}", GROUP, e.getMessage());
+        }
+    }
+
+    private long pendingBacklog() {
+        try {
+            Long size = redisTemplate.opsForStream().size(STREAM_KEY);
+            return size == null ? 0 : size;
+        } catch (Exception e) {
+            return 0;
+        }
+    }
+
+    // 流中尚未投递给任何消费者的任务数：流长度减去消费组的待确认数（已完成的任务确认后即删除）
+    private long undeliveredBacklog() {
+        try {
+            Long size = redisTemplate.opsForStream().size(STREAM_KEY);
+            PendingMessagesSummary pending = redisTemplate.opsForStream().pending(STREAM_KEY, GROUP);
+            long delivered = pending == null ? 0 : pending.getTotalPendingMessages();
+            return Math.max(0, (size == null ? 0 : size) - delivered);
+        } catch (Exception e) {
+            return 0;
+        }
+    }
+
+    private static TaskJob toJob(MapRecord<String, Object, Object> record) {
+        Map<Object, Object> value = record.getValue();
+        return new TaskJob(
+                String.valueOf(value.get("taskId")),
+                String.valueOf(value.get("url")),
+                String.valueOf(value.getOrDefault("title", "")));
+    }
+
+    private static Thread daemon(Runnable runnable, String name) {
+        Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    private static String resolveHostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            return "velp";
+        }
+    }
+
+    private static void sleepQuietly(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.velp.infrastructure.ratelimit;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-JVM token buckets, used in single-node (memory) mode.
+ */
+@Component
+@ConditionalOnProperty(name = "velp.repository.type", havingValue = "memory", matchIfMissing = true)
+public class LocalProviderRateLimiter implements ProviderRateLimiter {
+
+    private final ProviderRateLimits rateLimits;
+    private final Map<String, Buckets> buckets = new ConcurrentHashMap<>();
+
+    public LocalProviderRateLimiter(ProviderRateLimits rateLimits) {
+        this.rateLimits = rateLimits;
+    }
+
+    @Override
+    public void acquire(String provider, int tokens) throws InterruptedException {
+        Buckets bucket = bucketFor(provider);
+        long waitMs;
+        while ((waitMs = bucket.tryAcquire(tokens, System.nanoTime())) > 0) {
+            Thread.sleep(waitMs);
+        }
+    }
+
+    @Override
+    public void pause(String provider, long delayMs) {
+        bucketFor(provider).pause(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayMs));
+    }
+
+    private Buckets bucketFor(String provider) {
+        return buckets.computeIfAbsent(provider.toLowerCase(), key -> new Buckets(rateLimits.forProvider(key)));
+    }
+
+    private static final class Buckets {
+        private final double requestCapacity;
+        private final double tokenCapacity;
+        private double requests;
+        private double tokens;
+        private long lastRefillNanos;
+        private long pausedUntilNanos;
+
+        private Buckets(ProviderRateLimits.Limits limits) {
+            this.requestCapacity = limits.requestsPerMinute();
+            this.tokenCapacity = limits.tokensPerMinute();
+            this.requests = requestCapacity;
+            this.tokens = tokenCapacity;
+            this.lastRefillNanos = System.nanoTime();
+        }
+
+        /**
+         * Takes one request and the given tokens, or returns how many ms to wait before trying again.
+         */
+        private synchronized long tryAcquire(int requestedTokens, long nowNanos) {
+            if (nowNanos < pausedUntilNanos) {
+                return Math.max(1, TimeUnit.NANOSECONDS.toMillis(pausedUntilNanos - nowNanos));
+            }
+            double elapsedMinutes = (nowNanos - lastRefillNanos) / 60_000_000_000.0;
+            lastRefillNanos = nowNanos;
+            requests = Math.min(requestCapacity, requests + elapsedMinutes * requestCapacity);
+            tokens = Math.min(tokenCapacity, tokens + elapsedMinutes * tokenCapacity);
+
+            double needTokens = Math.min(requestedTokens, tokenCapacity);
+            long waitMs = 0;
+            if (requestCapacity > 0 && requests < 1) {
+                waitMs = Math.max(waitMs, (long) Math.ceil((1 - requests) * 60_000 / requestCapacity));
+            }
+            if (tokenCapacity > 0 && tokens < needTokens) {
+                waitMs = Math.max(waitMs, (long) Math.ceil((needTokens - tokens) * 60_000 / tokenCapacity));
+            }
+            if (waitMs > 0) {
+                return waitMs;
+            }
+            if (requestCapacity > 0) requests -= 1;
+            if (tokenCapacity > 0) tokens -= needTokens;
+            return 0;
+        }
+
+        private synchronized void pause(long untilNanos) {
+            pausedUntilNanos = Math.max(pausedUntilNanos, untilNanos);
+        }
+    }
+}
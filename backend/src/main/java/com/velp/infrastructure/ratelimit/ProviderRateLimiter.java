@@ -0,0 +1,17 @@
+package com.velp.infrastructure.ratelimit;
+
+/**
+ * Client-side throttle in front of every translation provider, shared by all translation work.
+ */
+public interface ProviderRateLimiter {
+
+    /**
+     * Blocks until one request carrying roughly {@code tokens} LLM tokens may be sent to the provider.
+     */
+    void acquire(String provider, int tokens) throws InterruptedException;
+
+    /**
+     * Pauses all callers of the provider for the given delay, e.g. after an HTTP 429.
+     */
+    void pause(String provider, long delayMs);
+}
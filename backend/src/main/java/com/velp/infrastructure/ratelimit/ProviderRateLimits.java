@@ -0,0 +1,43 @@
+package com.velp.infrastructure.ratelimit;
+
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Resolves per-provider request and token budgets.
+ *
+ * velp.llm.rate-limit.{provider}.requests-per-minute overrides velp.llm.rate-limit.requests-per-minute,
+ * and the same for tokens-per-minute. A value of 0 disables that bucket.
+ */
+@Component
+public class ProviderRateLimits {
+
+    private static final String PREFIX = "velp.llm.rate-limit.";
+
+    private final Environment environment;
+    private final Map<String, Limits> cache = new ConcurrentHashMap<>();
+
+    public ProviderRateLimits(Environment environment) {
+        this.environment = environment;
+    }
+
+    public Limits forProvider(String provider) {
+        return cache.computeIfAbsent(provider.toLowerCase(), key -> new Limits(
+                resolve(key, "requests-per-minute"),
+                resolve(key, "tokens-per-minute")));
+    }
+
+    private long resolve(String provider, String name) {
+        Long global = environment.getProperty(PREFIX + name, Long.class, 0L);
+        return Math.max(0, environment.getProperty(PREFIX + provider + "." + name, Long.class, global));
+    }
+
+    public record Limits(long requestsPerMinute, long tokensPerMinute) {
+        public boolean unlimited() {
+            return requestsPerMinute <= 0 && tokensPerMinute <= 0;
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.velp.infrastructure.ratelimit;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 基于 Redis 的令牌桶限流实现。
+ *
+ * 所有副本共享同一组桶，因此配置的每分钟请求数 / Token 数是整个集群的总配额。
+ * 桶的补充与扣减在 Lua 脚本中原子完成，时间取自 Redis 服务器，避免各节点时钟偏差。
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "velp.repository.type", havingValue = "redis")
+public class RedisProviderRateLimiter implements ProviderRateLimiter {
+
+    private static final String KEY_PREFIX = "velp:ratelimit:";
+
+    // 返回 0 表示已获取配额，否则返回需要等待的毫秒数
+    private static final RedisScript<Long> ACQUIRE_SCRIPT = new DefaultRedisScript<>("""
+            local paused = redis.call('PTTL', KEYS[2])
+            if paused > 0 then return paused end
+            local t = redis.call('TIME')
+            local now = tonumber(t[1]) * 1000 + math.floor(tonumber(t[2]) / 1000)
+            local rpm = tonumber(ARGV[1])
+            local tpm = tonumber(ARGV[2])
+            local need = tonumber(ARGV[3])
+            local state = redis.call('HMGET', KEYS[1], 'req', 'tok', 'ts')
+            local req = tonumber(state[1]) or rpm
+            local tok = tonumber(state[2]) or tpm
+            local elapsed = math.max(0, now - (tonumber(state[3]) or now))
+            if rpm > 0 then req = math.min(rpm, req + elapsed * rpm / 60000) end
+            if tpm > 0 then
+                tok = math.min(tpm, tok + elapsed * tpm / 60000)
+                need = math.min(need, tpm)
+            end
+            local wait = 0
+            if rpm > 0 and req < 1 then wait = math.max(wait, math.ceil((1 - req) * 60000 / rpm)) end
+            if tpm > 0 and tok < need then wait = math.max(wait, math.ceil((need - tok) * 60000 / tpm)) end
+            if wait == 0 then
+                if rpm > 0 then req = req - 1 end
+                if tpm > 0 then tok = tok - need end
+            end
+            redis.call('HSET', KEYS[1], 'req', tostring(req), 'tok', tostring(tok), 'ts', tostring(now))
+            redis.call('PEXPIRE', KEYS[1], 120000)
+            return wait
+            """, Long.class);
+
+    // 只在新的暂停比现有暂停更晚结束时才写入，避免较短的 Retry-After 缩短其他副本设置的暂停
+    private static final RedisScript<Long> PAUSE_SCRIPT = new DefaultRedisScript<>("""
+            local remaining = redis.call('PTTL', KEYS[1])
+            local delay = tonumber(ARGV[1])
+            if remaining >= delay then return 0 end
+            redis.call('SET', KEYS[1], '1', 'PX', delay)
+            return 1
+            """, Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final ProviderRateLimits rateLimits;
+
+    public RedisProviderRateLimiter(StringRedisTemplate redisTemplate, ProviderRateLimits rateLimits) {
+        this.redisTemplate = redisTemplate;
+        this.rateLimits = rateLimits;
+    }
+
+    @Override
+    public void acquire(String provider, int tokens) throws InterruptedException {
+        ProviderRateLimits.Limits limits = rateLimits.forProvider(provider);
+        String name = provider.toLowerCase();
+        List<String> keys = List.of(KEY_PREFIX + name + ":bucket", KEY_PREFIX + name + ":paused");
+        while (true) {
+            Long waitMs;
+            try {
+                if (limits.unlimited()) {
+                    // 未配置配额时仍需遵守 429 触发的集群级暂停
+                    waitMs = redisTemplate.getExpire(keys.get(1), TimeUnit.MILLISECONDS);
+                } else {
+                    waitMs = redisTemplate.execute(ACQUIRE_SCRIPT, keys,
+                            String.valueOf(limits.requestsPerMinute()),
+                            String.valueOf(limits.tokensPerMinute()),
+                            String.valueOf(tokens));
+                }
+            } catch (Exception e) {
+                // Redis 不可用时放行，由服务商侧的 429 兜底
+                log.warn("Rate limiter unavailable for provider {}, proceeding without throttle: {}", provider, e.getMessage());
+                return;
+            }
+            if (waitMs == null || waitMs <= 0) {
+                return;
+            }
+            Thread.sleep(waitMs);
+        }
+    }
+
+    @Override
+    public void pause(String provider, long delayMs) {
+        if (delayMs <= 0) return;
+        try {
+            redisTemplate.execute(PAUSE_SCRIPT, List.of(KEY_PREFIX + provider.toLowerCase() + ":paused"), String.valueOf(delayMs));
+        } catch (Exception e) {
+            log.warn("Failed to record rate limit pause for provider {}: {}", provider, e.getMessage());
+        }
+    }
+}
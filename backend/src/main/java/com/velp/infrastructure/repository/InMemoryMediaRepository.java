@@ -3,18 +3,30 @@ package com.velp.infrastructure.repository;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.velp.common.constants.AppConstants;
+import com.velp.domain.model.TaskCheckpoint;
+import com.velp.domain.model.TaskTrace;
 import com.velp.domain.repository.MediaRepository;
+import com.velp.infrastructure.metrics.PipelineMetrics;
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Repository;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * 基于内存和本地 JSON 文件的媒体任务仓库实现。
@@ -31,12 +43,42 @@ public class InMemoryMediaRepository implements MediaRepository {
     private String storagePath;
 
     private static final String TASKS_FILE = "tasks.json";
+    private static final String TRACES_FILE = "task-traces.json";
+    private static final String CHECKPOINTS_FILE = "task-checkpoints.json";
+    // 阶段事件很频繁：轨迹文件合并写入，最多延迟这么久落盘
+    private static final long TRACE_FLUSH_DELAY_MS = 1000;
     private final Map<String, TaskStatus> taskMap = new ConcurrentHashMap<>();
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    // 只保存快照副本，写文件时不会与仍在追加阶段的任务线程并发修改同一个对象
+    private final Map<String, TaskTrace> traceMap = new ConcurrentHashMap<>();
+    private final AtomicBoolean traceFlushScheduled = new AtomicBoolean();
+    private final ScheduledExecutorService traceWriter;
+    private final Map<String, TaskCheckpoint> checkpointMap = new ConcurrentHashMap<>();
+    // 视频目录（内容地址）-> 占用它的任务；重启后由已有任务列表去重，无需持久化
+    private final Map<String, String> videoClaims = new ConcurrentHashMap<>();
+    private final ObjectMapper objectMapper;
+    private final PipelineMetrics metrics;
+
+    public InMemoryMediaRepository(ObjectMapper objectMapper, PipelineMetrics metrics) {
+        this.objectMapper = objectMapper;
+        this.metrics = metrics;
+        this.traceWriter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "trace-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        traceWriter.shutdownNow();
+        flushTraces();
+    }
 
     @PostConstruct
     public void init() {
         loadTasks();
+        loadTraces();
+        loadCheckpoints();
     }
 
     private void loadTasks() {
@@ -52,19 +94,94 @@ public class InMemoryMediaRepository implements MediaRepository {
         }
     }
 
+    private void loadTraces() {
+        File file = new File(storagePath, TRACES_FILE);
+        if (file.exists()) {
+            try {
+                Map<String, TaskTrace> loaded = objectMapper.readValue(file, new TypeReference<Map<String, TaskTrace>>() {});
+                traceMap.putAll(loaded);
+            } catch (Exception e) {
+                log.error("Failed to load task traces from persistence", e);
+            }
+        }
+    }
+
+    private void persistTraces() {
+        if (traceFlushScheduled.compareAndSet(false, true)) {
+            try {
+                traceWriter.schedule(this::flushTraces, TRACE_FLUSH_DELAY_MS, TimeUnit.MILLISECONDS);
+            } catch (Exception e) {
+                // 关闭期间无法调度，直接写入
+                flushTraces();
+            }
+        }
+    }
+
+    private void flushTraces() {
+        traceFlushScheduled.set(false);
+        synchronized (traceMap) {
+            try {
+                writeAtomically(TRACES_FILE, traceMap);
+            } catch (Exception e) {
+                log.error("Failed to persist task traces to disk", e);
+            }
+        }
+    }
+
+    private void loadCheckpoints() {
+        File file = new File(storagePath, CHECKPOINTS_FILE);
+        if (file.exists()) {
+            try {
+                Map<String, TaskCheckpoint> loaded = objectMapper.readValue(file, new TypeReference<Map<String, TaskCheckpoint>>() {});
+                checkpointMap.putAll(loaded);
+            } catch (Exception e) {
+                log.error("Failed to load task checkpoints from persistence", e);
+            }
+        }
+    }
+
+    private void persistCheckpoints() {
+        synchronized (checkpointMap) {
+            try {
+                writeAtomically(CHECKPOINTS_FILE, checkpointMap);
+            } catch (Exception e) {
+                log.error("Failed to persist task checkpoints to disk", e);
+            }
+        }
+    }
+
     private synchronized void persistTasks() {
         try {
-            File dir = new File(storagePath);
-            if (!dir.exists()) dir.mkdirs();
-            File file = new File(dir, TASKS_FILE);
-            objectMapper.writeValue(file, taskMap);
+            writeAtomically(TASKS_FILE, taskMap);
         } catch (Exception e) {
             log.error("Failed to persist tasks to disk", e);
         }
     }
 
+    // 先写同目录下的临时文件再原子重命名，写入中途崩溃不会留下被截断的文件
+    private void writeAtomically(String fileName, Object value) throws IOException {
+        File dir = new File(storagePath);
+        if (!dir.exists()) dir.mkdirs();
+        File target = new File(dir, fileName);
+        File tmpFile = Files.createTempFile(dir.toPath(), fileName + ".", ".tmp").toFile();
+        try {
+            objectMapper.writeValue(tmpFile, value);
+            try {
+                Files.move(tmpFile.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmpFile.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tmpFile.toPath());
+        }
+    }
+
     @Override
     public void saveTaskStatus(String taskId, String status, int progress, String videoId, String error, String url, String title) {
+        metrics.timeRepository("saveTaskStatus", () -> doSaveTaskStatus(taskId, status, progress, videoId, error, url, title));
+    }
+
+    private void doSaveTaskStatus(String taskId, String status, int progress, String videoId, String error, String url, String title) {
         TaskStatus existing = taskMap.get(taskId);
         String finalUrl = (url != null) ? url : (existing != null ? existing.url() : "");
         String finalTitle = (title != null) ? title : (existing != null ? existing.title() : "");
@@ -76,27 +193,43 @@ public class InMemoryMediaRepository implements MediaRepository {
 
     @Override
     public void deleteTask(String taskId) {
-        if (taskMap.remove(taskId) != null) {
-            persistTasks();
-        }
+        metrics.timeRepository("deleteTask", () -> {
+            if (taskMap.remove(taskId) != null) {
+                persistTasks();
+            }
+            if (traceMap.remove(taskId) != null) {
+                persistTraces();
+            }
+            if (checkpointMap.remove(taskId) != null) {
+                persistCheckpoints();
+            }
+        });
     }
 
     @Override
     public void deleteFailedTasks() {
-        boolean removed = taskMap.entrySet().removeIf(entry -> AppConstants.TaskStatus.FAILED.equals(entry.getValue().status()));
-        if (removed) {
-            persistTasks();
-        }
+        metrics.timeRepository("deleteFailedTasks", () -> {
+            boolean removed = taskMap.entrySet().removeIf(entry -> AppConstants.TaskStatus.FAILED.equals(entry.getValue().status()));
+            if (removed) {
+                persistTasks();
+                if (traceMap.keySet().retainAll(taskMap.keySet())) {
+                    persistTraces();
+                }
+                if (checkpointMap.keySet().retainAll(taskMap.keySet())) {
+                    persistCheckpoints();
+                }
+            }
+        });
     }
 
     @Override
     public Optional<TaskStatus> getTaskStatus(String taskId) {
-        return Optional.ofNullable(taskMap.get(taskId));
+        return metrics.timeRepository("getTaskStatus", () -> Optional.ofNullable(taskMap.get(taskId)));
     }
 
     @Override
     public List<TaskEntry> getAllTasks() {
-        return taskMap.entrySet().stream()
+        return metrics.timeRepository("getAllTasks", () -> taskMap.entrySet().stream()
                 .map(e -> new TaskEntry(
                         e.getKey(), 
                         e.getValue().status(), 
@@ -105,6 +238,53 @@ public class InMemoryMediaRepository implements MediaRepository {
                         e.getValue().url(), 
                         e.getValue().title(),
                         e.getValue().createdAt()))
-                .toList();
+                .toList());
+    }
+
+    @Override
+    public String claimVideo(String videoId, String taskId) {
+        return metrics.timeRepository("claimVideo", () -> {
+            String holder = videoClaims.putIfAbsent(videoId, taskId);
+            return holder != null ? holder : taskId;
+        });
+    }
+
+    @Override
+    public boolean replaceVideoClaim(String videoId, String expectedHolder, String taskId) {
+        return metrics.timeRepository("replaceVideoClaim", () -> videoClaims.replace(videoId, expectedHolder, taskId));
+    }
+
+    @Override
+    public void releaseVideoClaim(String videoId, String taskId) {
+        metrics.timeRepository("releaseVideoClaim", () -> {
+            videoClaims.remove(videoId, taskId);
+        });
+    }
+
+    @Override
+    public void saveTaskTrace(String taskId, TaskTrace trace) {
+        metrics.timeRepository("saveTaskTrace", () -> {
+            traceMap.put(taskId, trace.copy());
+            persistTraces();
+        });
+    }
+
+    @Override
+    public Optional<TaskTrace> getTaskTrace(String taskId) {
+        return metrics.timeRepository("getTaskTrace", () -> Optional.ofNullable(traceMap.get(taskId)).map(TaskTrace::copy));
+    }
+
+    @Override
+    public void saveCheckpoint(String taskId, TaskCheckpoint checkpoint) {
+        metrics.timeRepository("saveCheckpoint", () -> {
+            // 存副本：流水线在 synchronized(checkpoint) 下继续修改调用方持有的对象
+            checkpointMap.put(taskId, checkpoint.copy());
+            persistCheckpoints();
+        });
+    }
+
+    @Override
+    public Optional<TaskCheckpoint> getCheckpoint(String taskId) {
+        return metrics.timeRepository("getCheckpoint", () -> Optional.ofNullable(checkpointMap.get(taskId)).map(TaskCheckpoint::copy));
     }
 }
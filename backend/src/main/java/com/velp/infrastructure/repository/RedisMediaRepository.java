@@ -3,15 +3,32 @@ package com.velp.infrastructure.repository;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.velp.common.constants.AppConstants;
+import com.velp.domain.model.TaskCheckpoint;
+import com.velp.domain.model.TaskTrace;
 import com.velp.domain.repository.MediaRepository;
+import com.velp.infrastructure.metrics.PipelineMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.stereotype.Repository;
 
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
 /**
@@ -19,6 +36,10 @@ import java.util.stream.Collectors;
  * 
  * 相比于 InMemoryMediaRepository，本实现允许后端多节点部署。
  * 所有节点共享同一个 Redis 实例，从而保证任务状态在集群内的一致性。
+ *
+ * 任务状态读取经过本地近端缓存（有界 LRU，缓存反序列化后的对象）：已完成的任务常驻缓存，
+ * 进行中的任务最多缓存 active-ttl-ms。任何节点写入或删除任务时通过 Redis pub/sub 广播任务 ID，
+ * 其他节点收到后使本地条目失效；TTL 作为消息丢失（如订阅重连期间）时的兜底。
  */
 @Slf4j
 @Repository
@@ -28,15 +49,89 @@ public class RedisMediaRepository implements MediaRepository {
 
     private final StringRedisTemplate redisTemplate;
     private final ObjectMapper objectMapper;
+    private final PipelineMetrics metrics;
     
     // Redis 中存储任务的统一前缀
     private static final String REDIS_KEY_PREFIX = "velp:task:";
+    // 任务阶段耗时追踪单独存放，避免被 velp:task:* 的扫描命中
+    private static final String TRACE_KEY_PREFIX = "velp:trace:";
+    // 任务断点（已完成的流水线阶段），用于中断后续跑
+    private static final String CHECKPOINT_KEY_PREFIX = "velp:checkpoint:";
+    // 视频目录（内容地址）占用标记，值为占用它的任务 ID，用 SET NX 保证同一视频只创建一个任务
+    private static final String VIDEO_CLAIM_KEY_PREFIX = "velp:video:";
+    // 仅当当前占用者仍为预期任务时才转交（比较并设置）
+    private static final RedisScript<Long> REPLACE_CLAIM_SCRIPT = new DefaultRedisScript<>("""
+            if redis.call('GET', KEYS[1]) == ARGV[1] then
+                redis.call('SET', KEYS[1], ARGV[2])
+                return 1
+            end
+            return 0
+            """, Long.class);
+    private static final RedisScript<Long> RELEASE_CLAIM_SCRIPT = new DefaultRedisScript<>("""
+            if redis.call('GET', KEYS[1]) == ARGV[1] then
+                return redis.call('DEL', KEYS[1])
+            end
+            return 0
+            """, Long.class);
+    // 近端缓存失效广播频道，消息格式为 "<节点 ID>:<任务 ID>"
+    private static final String INVALIDATION_CHANNEL = "velp:task:invalidate";
+
+    @Value("${velp.repository.near-cache.max-entries:10000}")
+    private int nearCacheMaxEntries;
+
+    @Value("${velp.repository.near-cache.active-ttl-ms:1000}")
+    private long activeTtlMs;
+
+    @Value("${velp.repository.near-cache.completed-ttl-ms:300000}")
+    private long completedTtlMs;
+
+    private final String nodeId = UUID.randomUUID().toString();
+    // 每次本地写入或失效时递增；读取未命中后仅在期间没有失效发生时才回填，避免旧值覆盖新值
+    private final AtomicLong invalidations = new AtomicLong();
+    private Map<String, CachedStatus> nearCache;
+    private RedisMessageListenerContainer invalidationListener;
+
+    private record CachedStatus(TaskStatus status, long expiresAt) {}
+
+    @PostConstruct
+    public void initNearCache() {
+        if (nearCacheMaxEntries <= 0) {
+            return;
+        }
+        nearCache = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedStatus> eldest) {
+                return size() > nearCacheMaxEntries;
+            }
+        });
+        invalidationListener = new RedisMessageListenerContainer();
+        invalidationListener.setConnectionFactory(redisTemplate.getRequiredConnectionFactory());
+        invalidationListener.addMessageListener((message, pattern) -> onInvalidation(new String(message.getBody(), StandardCharsets.UTF_8)),
+                new ChannelTopic(INVALIDATION_CHANNEL));
+        invalidationListener.afterPropertiesSet();
+        invalidationListener.start();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (invalidationListener != null) {
+            try {
+                invalidationListener.destroy();
+            } catch (Exception e) {
+                log.debug("Failed to stop near-cache invalidation listener: {}", e.getMessage());
+            }
+        }
+    }
 
     @Override
     public void saveTaskStatus(String taskId, String status, int progress, String videoId, String error, String url, String title) {
+        metrics.timeRepository("saveTaskStatus", () -> doSaveTaskStatus(taskId, status, progress, videoId, error, url, title));
+    }
+
+    private void doSaveTaskStatus(String taskId, String status, int progress, String videoId, String error, String url, String title) {
         try {
-            // 1. 获取现有状态，保留创建时间等不变量
-            TaskStatus existing = getTaskStatus(taskId).orElse(null);
+            // 1. 获取现有状态，保留创建时间等不变量（优先取近端缓存，省去一次往返）
+            TaskStatus existing = cachedStatus(taskId).or(() -> readTaskStatus(taskId)).orElse(null);
             String finalUrl = (url != null) ? url : (existing != null ? existing.url() : "");
             String finalTitle = (title != null) ? title : (existing != null ? existing.title() : "");
             long createdAt = (existing != null && existing.createdAt() > 0) ? existing.createdAt() : System.currentTimeMillis();
@@ -47,6 +142,8 @@ public class RedisMediaRepository implements MediaRepository {
             // 3. 将对象序列化为 JSON 字符串并存入 Redis
             String json = objectMapper.writeValueAsString(taskStatus);
             redisTemplate.opsForValue().set(REDIS_KEY_PREFIX + taskId, json);
+            invalidate(taskId);
+            cacheStatus(taskId, taskStatus, invalidations.get());
         } catch (JsonProcessingException e) {
             log.error("Failed to serialize task status for Redis", e);
         }
@@ -55,11 +152,18 @@ public class RedisMediaRepository implements MediaRepository {
     @Override
     public void deleteTask(String taskId) {
         // 从 Redis 中移除指定 Key
-        redisTemplate.delete(REDIS_KEY_PREFIX + taskId);
+        metrics.timeRepository("deleteTask", () -> {
+            redisTemplate.delete(List.of(REDIS_KEY_PREFIX + taskId, TRACE_KEY_PREFIX + taskId, CHECKPOINT_KEY_PREFIX + taskId));
+            invalidate(taskId);
+        });
     }
 
     @Override
     public void deleteFailedTasks() {
+        metrics.timeRepository("deleteFailedTasks", this::doDeleteFailedTasks);
+    }
+
+    private void doDeleteFailedTasks() {
         // 扫描所有以 velp:task: 开头的 Key
         java.util.Set<String> keys = redisTemplate.keys(REDIS_KEY_PREFIX + "*");
         if (keys != null) {
@@ -70,7 +174,9 @@ public class RedisMediaRepository implements MediaRepository {
                     TaskStatus status = objectMapper.readValue(json, TaskStatus.class);
                     // 如果状态为 FAILED，则执行删除
                     if (AppConstants.TaskStatus.FAILED.equals(status.status())) {
-                        redisTemplate.delete(key);
+                        String taskId = key.substring(REDIS_KEY_PREFIX.length());
+                        redisTemplate.delete(List.of(key, TRACE_KEY_PREFIX + taskId, CHECKPOINT_KEY_PREFIX + taskId));
+                        invalidate(taskId);
                     }
                 } catch (Exception e) {
                     log.error("Failed to parse task status from Redis for cleanup", e);
@@ -81,6 +187,22 @@ public class RedisMediaRepository implements MediaRepository {
 
     @Override
     public Optional<TaskStatus> getTaskStatus(String taskId) {
+        return metrics.timeRepository("getTaskStatus", () -> {
+            Optional<TaskStatus> cached = cachedStatus(taskId);
+            if (nearCache != null) {
+                metrics.recordNearCacheLookup(cached.isPresent() ? 1 : 0, cached.isPresent() ? 0 : 1);
+            }
+            if (cached.isPresent()) {
+                return cached;
+            }
+            long stamp = invalidations.get();
+            Optional<TaskStatus> status = readTaskStatus(taskId);
+            status.ifPresent(value -> cacheStatus(taskId, value, stamp));
+            return status;
+        });
+    }
+
+    private Optional<TaskStatus> readTaskStatus(String taskId) {
         // 从 Redis 读取 JSON 字符串并还原为对象
         String json = redisTemplate.opsForValue().get(REDIS_KEY_PREFIX + taskId);
         if (json == null) return Optional.empty();
@@ -94,32 +216,202 @@ public class RedisMediaRepository implements MediaRepository {
 
     @Override
     public List<TaskEntry> getAllTasks() {
+        return metrics.timeRepository("getAllTasks", this::readAllTasks);
+    }
+
+    private List<TaskEntry> readAllTasks() {
         // 获取所有任务并转换为列表，用于前端任务列表展示
         java.util.Set<String> keys = redisTemplate.keys(REDIS_KEY_PREFIX + "*");
         if (keys == null) return List.of();
 
-        return keys.stream()
-                .map(key -> {
-                    String taskId = key.substring(REDIS_KEY_PREFIX.length());
-                    String json = redisTemplate.opsForValue().get(key);
-                    if (json == null) return null;
-                    try {
-                        TaskStatus status = objectMapper.readValue(json, TaskStatus.class);
-                        return new TaskEntry(
-                                taskId,
-                                status.status(),
-                                status.progress(),
-                                status.videoId(),
-                                status.url(),
-                                status.title(),
-                                status.createdAt()
-                        );
-                    } catch (Exception e) {
-                        log.error("Failed to parse task status from Redis", e);
-                        return null;
-                    }
+        // 近端缓存命中的直接使用，其余通过一次 MGET 批量读取
+        long stamp = invalidations.get();
+        Map<String, TaskStatus> statuses = new LinkedHashMap<>();
+        List<String> missingKeys = new ArrayList<>();
+        for (String key : keys) {
+            String taskId = key.substring(REDIS_KEY_PREFIX.length());
+            Optional<TaskStatus> cached = cachedStatus(taskId);
+            statuses.put(taskId, cached.orElse(null));
+            if (cached.isEmpty()) {
+                missingKeys.add(key);
+            }
+        }
+        if (nearCache != null) {
+            metrics.recordNearCacheLookup(keys.size() - missingKeys.size(), missingKeys.size());
+        }
+        if (!missingKeys.isEmpty()) {
+            List<String> values = redisTemplate.opsForValue().multiGet(missingKeys);
+            for (int i = 0; i < missingKeys.size(); i++) {
+                String json = values != null ? values.get(i) : null;
+                if (json == null) continue;
+                String taskId = missingKeys.get(i).substring(REDIS_KEY_PREFIX.length());
+                try {
+                    TaskStatus status = objectMapper.readValue(json, TaskStatus.class);
+                    statuses.put(taskId, status);
+                    cacheStatus(taskId, status, stamp);
+                } catch (Exception e) {
+                    log.error("Failed to parse task status from Redis", e);
+                }
+            }
+        }
+
+        return statuses.entrySet().stream()
+                .filter(entry -> entry.getValue() != null)
+                .map(entry -> {
+                    TaskStatus status = entry.getValue();
+                    return new TaskEntry(
+                            entry.getKey(),
+                            status.status(),
+                            status.progress(),
+                            status.videoId(),
+                            status.url(),
+                            status.title(),
+                            status.createdAt()
+                    );
                 })
-                .filter(java.util.Objects::nonNull)
                 .collect(Collectors.toList());
     }
+
+    private Optional<TaskStatus> cachedStatus(String taskId) {
+        if (nearCache == null) {
+            return Optional.empty();
+        }
+        CachedStatus cached = nearCache.get(taskId);
+        if (cached == null) {
+            return Optional.empty();
+        }
+        if (cached.expiresAt() < System.currentTimeMillis()) {
+            nearCache.remove(taskId, cached);
+            return Optional.empty();
+        }
+        return Optional.of(cached.status());
+    }
+
+    /**
+     * Caches a status read or written at {@code stamp}, unless an invalidation happened since.
+     * Completed tasks rarely change (requeue, retry, delete), so they are kept much longer than
+     * active ones, but still expire in case an invalidation message from another node was lost.
+     */
+    private void cacheStatus(String taskId, TaskStatus status, long stamp) {
+        if (nearCache == null) {
+            return;
+        }
+        long expiresAt = System.currentTimeMillis()
+                + (AppConstants.TaskStatus.COMPLETED.equals(status.status()) ? completedTtlMs : activeTtlMs);
+        synchronized (nearCache) {
+            if (invalidations.get() == stamp) {
+                nearCache.put(taskId, new CachedStatus(status, expiresAt));
+            }
+        }
+    }
+
+    private void invalidate(String taskId) {
+        if (nearCache == null) {
+            return;
+        }
+        evictLocal(taskId);
+        try {
+            redisTemplate.convertAndSend(INVALIDATION_CHANNEL, nodeId + ":" + taskId);
+        } catch (Exception e) {
+            // 广播失败时其他节点依靠 TTL 兜底：进行中的任务最多 active-ttl-ms，已完成任务最多 completed-ttl-ms
+            log.warn("Failed to publish near-cache invalidation for task {}: {}", taskId, e.getMessage());
+        }
+    }
+
+    private void onInvalidation(String message) {
+        int separator = message.indexOf(':');
+        if (separator < 0 || message.substring(0, separator).equals(nodeId)) {
+            return;
+        }
+        evictLocal(message.substring(separator + 1));
+    }
+
+    private void evictLocal(String taskId) {
+        synchronized (nearCache) {
+            invalidations.incrementAndGet();
+            nearCache.remove(taskId);
+        }
+    }
+
+    @Override
+    public void saveTaskTrace(String taskId, TaskTrace trace) {
+        metrics.timeRepository("saveTaskTrace", () -> {
+            try {
+                redisTemplate.opsForValue().set(TRACE_KEY_PREFIX + taskId, objectMapper.writeValueAsString(trace));
+            } catch (JsonProcessingException e) {
+                log.error("Failed to serialize task trace for Redis", e);
+            }
+        });
+    }
+
+    @Override
+    public Optional<TaskTrace> getTaskTrace(String taskId) {
+        return metrics.timeRepository("getTaskTrace", () -> {
+            String json = redisTemplate.opsForValue().get(TRACE_KEY_PREFIX + taskId);
+            if (json == null) return Optional.<TaskTrace>empty();
+            try {
+                return Optional.of(objectMapper.readValue(json, TaskTrace.class));
+            } catch (JsonProcessingException e) {
+                log.error("Failed to deserialize task trace from Redis", e);
+                return Optional.<TaskTrace>empty();
+            }
+        });
+    }
+
+    @Override
+    public String claimVideo(String videoId, String taskId) {
+        return metrics.timeRepository("claimVideo", () -> {
+            String key = VIDEO_CLAIM_KEY_PREFIX + videoId;
+            while (true) {
+                if (Boolean.TRUE.equals(redisTemplate.opsForValue().setIfAbsent(key, taskId))) {
+                    return taskId;
+                }
+                String holder = redisTemplate.opsForValue().get(key);
+                if (holder != null) {
+                    return holder;
+                }
+                // 占用者恰好被删除，重新尝试
+            }
+        });
+    }
+
+    @Override
+    public boolean replaceVideoClaim(String videoId, String expectedHolder, String taskId) {
+        return metrics.timeRepository("replaceVideoClaim", () -> {
+            Long replaced = redisTemplate.execute(REPLACE_CLAIM_SCRIPT, List.of(VIDEO_CLAIM_KEY_PREFIX + videoId), expectedHolder, taskId);
+            return replaced != null && replaced == 1;
+        });
+    }
+
+    @Override
+    public void releaseVideoClaim(String videoId, String taskId) {
+        metrics.timeRepository("releaseVideoClaim", () -> {
+            redisTemplate.execute(RELEASE_CLAIM_SCRIPT, List.of(VIDEO_CLAIM_KEY_PREFIX + videoId), taskId);
+        });
+    }
+
+    @Override
+    public void saveCheckpoint(String taskId, TaskCheckpoint checkpoint) {
+        metrics.timeRepository("saveCheckpoint", () -> {
+            try {
+                redisTemplate.opsForValue().set(CHECKPOINT_KEY_PREFIX + taskId, objectMapper.writeValueAsString(checkpoint.copy()));
+            } catch (JsonProcessingException e) {
+                log.error("Failed to serialize task checkpoint for Redis", e);
+            }
+        });
+    }
+
+    @Override
+    public Optional<TaskCheckpoint> getCheckpoint(String taskId) {
+        return metrics.timeRepository("getCheckpoint", () -> {
+            String json = redisTemplate.opsForValue().get(CHECKPOINT_KEY_PREFIX + taskId);
+            if (json == null) return Optional.<TaskCheckpoint>empty();
+            try {
+                return Optional.of(objectMapper.readValue(json, TaskCheckpoint.class));
+            } catch (JsonProcessingException e) {
+                log.error("Failed to deserialize task checkpoint from Redis", e);
+                return Optional.<TaskCheckpoint>empty();
+            }
+        });
+    }
 }
@@ -0,0 +1,248 @@
+package com.velp.infrastructure.search;
+
+import com.velp.domain.model.Transcript;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable inverted index over the cues of one video.
+ *
+ * Both text columns of a cue are indexed, the spoken-language one and the translation, each
+ * as its own field: a slot is {@code row * FIELDS + field}. Each term maps to a sorted array of
+ * occurrences packed as {@code slot << POSITION_BITS | position}, where position is the token
+ * offset inside that field, so phrase matching is a binary search per following term. Cue
+ * times and text are kept alongside (text pooled like {@link Transcript}), so hits can be
+ * rendered without opening subs.json.
+ */
+final class SearchSegment {
+
+    static final int POSITION_BITS = 10;
+    static final int MAX_POSITION = (1 << POSITION_BITS) - 1;
+    static final int FIELD_EN = 0;
+    static final int FIELD_CN = 1;
+    static final int FIELDS = 2;
+
+    private static final int MAGIC = 0x56534547;
+    // Version 3 length-prefixes strings as UTF-8 bytes; older segments are rebuilt from subs.json
+    private static final int VERSION = 3;
+
+    private final String videoId;
+    private final String title;
+    private final long sourceModified;
+    private final long[] startMs;
+    private final long[] endMs;
+    // Text of slot s is textPool[textOffsets[s], textOffsets[s + 1])
+    private final String textPool;
+    private final int[] textOffsets;
+    private final Map<String, int[]> postings;
+
+    private SearchSegment(String videoId, String title, long sourceModified, long[] startMs, long[] endMs,
+                          String textPool, int[] textOffsets, Map<String, int[]> postings) {
+        this.videoId = videoId;
+        this.title = title;
+        this.sourceModified = sourceModified;
+        this.startMs = startMs;
+        this.endMs = endMs;
+        this.textPool = textPool;
+        this.textOffsets = textOffsets;
+        this.postings = postings;
+    }
+
+    /**
+     * Indexes the spoken-language column of a transcript (the parser puts the text of a
+     * Chinese-only track there too) and its translation column.
+     */
+    static SearchSegment build(String videoId, String title, long sourceModified, Transcript transcript) {
+        int size = transcript.size();
+        long[] starts = new long[size];
+        long[] ends = new long[size];
+        int[] offsets = new int[size * FIELDS + 1];
+        StringBuilder pool = new StringBuilder();
+        Map<String, Occurrences> terms = new HashMap<>();
+        for (int row = 0; row < size; row++) {
+            starts[row] = transcript.startMs(row);
+            ends[row] = transcript.endMs(row);
+            for (int field = 0; field < FIELDS; field++) {
+                int slot = row * FIELDS + field;
+                String text = field == FIELD_EN ? transcript.en(row) : transcript.cn(row);
+                if (text != null) {
+                    pool.append(text);
+                }
+                offsets[slot + 1] = pool.length();
+                List<String> tokens = SearchTokenizer.tokenize(text);
+                for (int position = 0; position < tokens.size() && position <= MAX_POSITION; position++) {
+                    terms.computeIfAbsent(tokens.get(position), key -> new Occurrences()).add(slot << POSITION_BITS | position);
+                }
+            }
+        }
+        Map<String, int[]> postings = new HashMap<>(terms.size() * 4 / 3 + 1);
+        terms.forEach((term, occurrences) -> postings.put(term, occurrences.toArray()));
+        return new SearchSegment(videoId, title, sourceModified, starts, ends, pool.toString(), offsets, postings);
+    }
+
+    String videoId() {
+        return videoId;
+    }
+
+    String title() {
+        return title;
+    }
+
+    long sourceModified() {
+        return sourceModified;
+    }
+
+    int size() {
+        return startMs.length;
+    }
+
+    long startMs(int row) {
+        return startMs[row];
+    }
+
+    long endMs(int row) {
+        return endMs[row];
+    }
+
+    String text(int slot) {
+        return textPool.substring(textOffsets[slot], textOffsets[slot + 1]);
+    }
+
+    Set<String> terms() {
+        return postings.keySet();
+    }
+
+    /**
+     * Sorted packed occurrences of a term, or null if the term does not appear in this video.
+     */
+    int[] occurrences(String term) {
+        return postings.get(term);
+    }
+
+    static int slot(int occurrence) {
+        return occurrence >>> POSITION_BITS;
+    }
+
+    static int row(int slot) {
+        return slot / FIELDS;
+    }
+
+    static int field(int slot) {
+        return slot % FIELDS;
+    }
+
+    static int position(int occurrence) {
+        return occurrence & MAX_POSITION;
+    }
+
+    void write(File file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 64 * 1024))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            writeString(out, videoId);
+            writeString(out, title != null ? title : "");
+            out.writeLong(sourceModified);
+            out.writeInt(size());
+            for (int row = 0; row < size(); row++) {
+                out.writeLong(startMs[row]);
+                out.writeLong(endMs[row]);
+                for (int field = 0; field < FIELDS; field++) {
+                    writeString(out, text(row * FIELDS + field));
+                }
+            }
+            out.writeInt(postings.size());
+            for (Map.Entry<String, int[]> entry : postings.entrySet()) {
+                writeString(out, entry.getKey());
+                int[] occurrences = entry.getValue();
+                out.writeInt(occurrences.length);
+                for (int occurrence : occurrences) {
+                    out.writeInt(occurrence);
+                }
+            }
+        }
+    }
+
+    static SearchSegment read(File file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 64 * 1024))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Unsupported search segment: " + file);
+            }
+            String videoId = readString(in);
+            String title = readString(in);
+            long sourceModified = in.readLong();
+            int size = in.readInt();
+            long[] starts = new long[size];
+            long[] ends = new long[size];
+            int[] offsets = new int[size * FIELDS + 1];
+            StringBuilder pool = new StringBuilder();
+            for (int row = 0; row < size; row++) {
+                starts[row] = in.readLong();
+                ends[row] = in.readLong();
+                for (int field = 0; field < FIELDS; field++) {
+                    pool.append(readString(in));
+                    offsets[row * FIELDS + field + 1] = pool.length();
+                }
+            }
+            int termCount = in.readInt();
+            Map<String, int[]> postings = new HashMap<>(termCount * 4 / 3 + 1);
+            for (int t = 0; t < termCount; t++) {
+                String term = readString(in);
+                int[] occurrences = new int[in.readInt()];
+                for (int i = 0; i < occurrences.length; i++) {
+                    occurrences[i] = in.readInt();
+                }
+                postings.put(term, occurrences);
+            }
+            return new SearchSegment(videoId, title.isEmpty() ? null : title, sourceModified, starts, ends, pool.toString(), offsets, postings);
+        }
+    }
+
+    /**
+     * Strings are written as length-prefixed UTF-8 rather than with writeUTF, which rejects
+     * anything over 64 KB encoded and would fail the whole video on one oversized cue.
+     */
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            throw new IOException("Corrupt search segment string length " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static final class Occurrences {
+        private int[] values = new int[4];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
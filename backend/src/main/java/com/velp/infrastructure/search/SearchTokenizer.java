@@ -0,0 +1,52 @@
+package com.velp.infrastructure.search;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits cue text and queries into index terms.
+ *
+ * Words are runs of letters and digits, lower-cased, with inner apostrophes kept ("don't").
+ * Every CJK ideograph is a term of its own, so Chinese phrases are matched as runs of
+ * adjacent characters without a dictionary.
+ */
+final class SearchTokenizer {
+
+    private SearchTokenizer() {}
+
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return tokens;
+        }
+        StringBuilder word = new StringBuilder();
+        int i = 0;
+        while (i < text.length()) {
+            int cp = text.codePointAt(i);
+            i += Character.charCount(cp);
+            if (Character.isIdeographic(cp)) {
+                flush(word, tokens);
+                tokens.add(new String(Character.toChars(cp)));
+            } else if (Character.isLetterOrDigit(cp)) {
+                word.appendCodePoint(Character.toLowerCase(cp));
+            } else if ((cp == '\'' || cp == '’') && word.length() > 0) {
+                word.append('\'');
+            } else {
+                flush(word, tokens);
+            }
+        }
+        flush(word, tokens);
+        return tokens;
+    }
+
+    private static void flush(StringBuilder word, List<String> tokens) {
+        int end = word.length();
+        while (end > 0 && word.charAt(end - 1) == '\'') {
+            end--;
+        }
+        if (end > 0) {
+            tokens.add(word.substring(0, end));
+        }
+        word.setLength(0);
+    }
+}
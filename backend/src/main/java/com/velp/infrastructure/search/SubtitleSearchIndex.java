@@ -0,0 +1,462 @@
+package com.velp.infrastructure.search;
+
+import com.velp.common.constants.AppConstants;
+import com.velp.domain.model.Transcript;
+import com.velp.domain.repository.MediaRepository;
+import com.velp.infrastructure.metrics.PipelineMetrics;
+import com.velp.infrastructure.parser.TranscriptJsonCodec;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full-text index over the subtitles of every course.
+ *
+ * Each video directory keeps an inverted index segment (search.seg), written when the video
+ * finishes processing. Startup only loads segments; subs.json is parsed just for segments that
+ * are missing or stale. In memory the index has two levels: term -> segments containing it,
+ * and within a segment term -> occurrences, so a query only visits videos holding every query
+ * term and never touches the files. With shared storage, videos finished on other nodes join
+ * this node's index through a periodic scan for new segment files.
+ */
+@Slf4j
+@Component
+public class SubtitleSearchIndex {
+
+    // BM25 parameters; cues are short, so length normalisation is left out
+    private static final double K1 = 1.2;
+
+    @Value("${velp.storage.path:downloads}")
+    private String storagePath;
+
+    @Value("${velp.search.refresh-seconds:60}")
+    private long refreshSeconds;
+
+    private final TranscriptJsonCodec transcriptCodec;
+    private final MediaRepository mediaRepository;
+    private final PipelineMetrics metrics;
+
+    private final Map<String, SearchSegment> segments = new ConcurrentHashMap<>();
+    private final Map<String, Set<SearchSegment>> termSegments = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService loader;
+
+    public SubtitleSearchIndex(TranscriptJsonCodec transcriptCodec, MediaRepository mediaRepository, PipelineMetrics metrics) {
+        this.transcriptCodec = transcriptCodec;
+        this.mediaRepository = mediaRepository;
+        this.metrics = metrics;
+        this.loader = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "search-index-loader");
+            thread.setDaemon(true);
+            return thread;
+        });
+        metrics.gauge("velp.search.videos", segments::size);
+    }
+
+    public static final String FIELD_EN = "en";
+    public static final String FIELD_CN = "cn";
+
+    /**
+     * A phrase query result: the cue that matched, the text column it matched in
+     * ({@link #FIELD_EN} or {@link #FIELD_CN}) with that column's text, and its BM25 score.
+     */
+    public record Hit(String videoId, String title, long startMs, long endMs, String field, String text, double score) {}
+
+    public record Result(int total, List<Hit> hits) {}
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadSegments() {
+        // 在后台加载，避免大量课程拖慢启动；加载期间的查询返回已加载部分的结果
+        loader.execute(this::loadAll);
+        if (refreshSeconds > 0) {
+            loader.scheduleWithFixedDelay(this::refresh, refreshSeconds, refreshSeconds, TimeUnit.SECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        loader.shutdownNow();
+    }
+
+    /**
+     * Indexes a finished transcript and persists its segment. Replaces any previous
+     * segment of the same video.
+     */
+    public void index(String videoId, String title, Transcript transcript) {
+        File videoDir = new File(storagePath, videoId);
+        File subsFile = new File(videoDir, AppConstants.Storage.SUBS_JSON);
+        SearchSegment segment = SearchSegment.build(videoId, title, subsFile.lastModified(), transcript);
+        try {
+            writeSegment(videoDir, segment);
+        } catch (IOException e) {
+            // Still searchable until restart, when the segment is rebuilt from subs.json
+            log.warn("Failed to write search segment for {}: {}", videoId, e.getMessage());
+        }
+        add(segment, true);
+    }
+
+    public void remove(String videoId) {
+        SearchSegment removed = segments.remove(videoId);
+        if (removed != null) {
+            unlinkTerms(removed);
+        }
+        new File(new File(storagePath, videoId), AppConstants.Storage.SEARCH_SEGMENT).delete();
+    }
+
+    /**
+     * Finds cues containing every clause of the query in one of their text columns. Quoted text
+     * is a phrase whose words must be adjacent; other words only have to occur in the same column
+     * of the same cue. Returns the
+     * {@code limit} best hits by score, then by video and time.
+     */
+    public Result search(String query, int limit) {
+        long startedAt = System.nanoTime();
+        try {
+            List<List<String>> clauses = parseQuery(query);
+            if (clauses.isEmpty() || limit <= 0) {
+                return new Result(0, List.of());
+            }
+            Set<String> terms = new LinkedHashSet<>();
+            clauses.forEach(terms::addAll);
+
+            // Only videos containing every term can match; walk the smallest candidate set
+            Set<SearchSegment> candidates = null;
+            Map<String, Double> idf = new HashMap<>();
+            int videoCount = Math.max(1, segments.size());
+            for (String term : terms) {
+                Set<SearchSegment> containing = termSegments.get(term);
+                if (containing == null || containing.isEmpty()) {
+                    return new Result(0, List.of());
+                }
+                int df = containing.size();
+                idf.put(term, Math.log(1 + (videoCount - df + 0.5) / (df + 0.5)));
+                if (candidates == null || containing.size() < candidates.size()) {
+                    candidates = containing;
+                }
+            }
+
+            double[] clauseWeights = new double[clauses.size()];
+            for (int c = 0; c < clauses.size(); c++) {
+                for (String term : clauses.get(c)) {
+                    clauseWeights[c] += idf.get(term);
+                }
+            }
+
+            PriorityQueue<Candidate> top = new PriorityQueue<>(limit + 1, Candidate.RANK);
+            int total = 0;
+            for (SearchSegment segment : candidates) {
+                // Skip a segment that was replaced while we were iterating
+                if (segments.get(segment.videoId()) != segment || !containsAll(segment, terms)) {
+                    continue;
+                }
+                SlotScores matches = matchSegment(segment, clauses, clauseWeights);
+                total += matches.size;
+                for (int i = 0; i < matches.size; i++) {
+                    Candidate candidate = new Candidate(segment, matches.slots[i], matches.scores[i]);
+                    if (top.size() < limit) {
+                        top.add(candidate);
+                    } else if (Candidate.RANK.compare(candidate, top.peek()) > 0) {
+                        top.poll();
+                        top.add(candidate);
+                    }
+                }
+            }
+
+            // The heap yields the weakest hit first; text is only materialised for the hits returned
+            Hit[] ranked = new Hit[top.size()];
+            for (int i = ranked.length - 1; i >= 0; i--) {
+                ranked[i] = top.poll().toHit();
+            }
+            return new Result(total, List.of(ranked));
+        } finally {
+            metrics.recordSearch(System.nanoTime() - startedAt);
+        }
+    }
+
+    static List<List<String>> parseQuery(String query) {
+        List<List<String>> clauses = new ArrayList<>();
+        if (query == null) {
+            return clauses;
+        }
+        String[] parts = query.split("\"", -1);
+        for (int i = 0; i < parts.length; i++) {
+            List<String> tokens = SearchTokenizer.tokenize(parts[i]);
+            if (i % 2 == 1) {
+                if (!tokens.isEmpty()) {
+                    clauses.add(tokens);
+                }
+            } else {
+                for (String token : tokens) {
+                    clauses.add(List.of(token));
+                }
+            }
+        }
+        return clauses;
+    }
+
+    private static boolean containsAll(SearchSegment segment, Set<String> terms) {
+        for (String term : terms) {
+            if (segment.occurrences(term) == null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Slots (one text field of one cue) matching every clause, with their summed BM25 clause scores.
+     */
+    private static SlotScores matchSegment(SearchSegment segment, List<List<String>> clauses, double[] clauseWeights) {
+        SlotScores result = null;
+        for (int c = 0; c < clauses.size(); c++) {
+            SlotScores clauseRows = matchClause(segment, clauses.get(c), clauseWeights[c]);
+            result = result == null ? clauseRows : result.intersect(clauseRows);
+            if (result.size == 0) {
+                break;
+            }
+        }
+        return result;
+    }
+
+    private static SlotScores matchClause(SearchSegment segment, List<String> clause, double weight) {
+        int[] first = segment.occurrences(clause.get(0));
+        int[] slots = new int[first.length];
+        int[] counts = new int[first.length];
+        int size = 0;
+        for (int occurrence : first) {
+            boolean matched = true;
+            for (int i = 1; i < clause.size() && matched; i++) {
+                // Adjacent positions in the same cue pack to consecutive integers
+                matched = SearchSegment.position(occurrence) + i <= SearchSegment.MAX_POSITION
+                        && Arrays.binarySearch(segment.occurrences(clause.get(i)), occurrence + i) >= 0;
+            }
+            if (!matched) {
+                continue;
+            }
+            int slot = SearchSegment.slot(occurrence);
+            if (size > 0 && slots[size - 1] == slot) {
+                counts[size - 1]++;
+            } else {
+                slots[size] = slot;
+                counts[size++] = 1;
+            }
+        }
+        double[] scores = new double[size];
+        for (int i = 0; i < size; i++) {
+            scores[i] = weight * counts[i] * (K1 + 1) / (counts[i] + K1);
+        }
+        return new SlotScores(slots, scores, size);
+    }
+
+    private static final class SlotScores {
+        private final int[] slots;
+        private final double[] scores;
+        private final int size;
+
+        private SlotScores(int[] slots, double[] scores, int size) {
+            this.slots = slots;
+            this.scores = scores;
+            this.size = size;
+        }
+
+        SlotScores intersect(SlotScores other) {
+            int[] merged = new int[Math.min(size, other.size)];
+            double[] summed = new double[merged.length];
+            int n = 0;
+            int i = 0;
+            int j = 0;
+            while (i < size && j < other.size) {
+                if (slots[i] < other.slots[j]) {
+                    i++;
+                } else if (slots[i] > other.slots[j]) {
+                    j++;
+                } else {
+                    merged[n] = slots[i];
+                    summed[n++] = scores[i++] + other.scores[j++];
+                }
+            }
+            return new SlotScores(merged, summed, n);
+        }
+    }
+
+    private record Candidate(SearchSegment segment, int slot, double score) {
+        // Ascending rank, so the heap head is the weakest; ties prefer earlier videos, cues and the original text
+        static final Comparator<Candidate> RANK = Comparator.comparingDouble(Candidate::score)
+                .thenComparing((Candidate c) -> c.segment().videoId(), Comparator.reverseOrder())
+                .thenComparing((Candidate c) -> c.slot(), Comparator.reverseOrder());
+
+        Hit toHit() {
+            int row = SearchSegment.row(slot);
+            String field = SearchSegment.field(slot) == SearchSegment.FIELD_EN ? FIELD_EN : FIELD_CN;
+            return new Hit(segment.videoId(), segment.title(), segment.startMs(row), segment.endMs(row), field, segment.text(slot), score);
+        }
+    }
+
+    private void add(SearchSegment segment, boolean replace) {
+        SearchSegment previous;
+        if (replace) {
+            previous = segments.put(segment.videoId(), segment);
+        } else {
+            // 后台加载不能覆盖加载期间刚完成的视频的新段
+            previous = segments.putIfAbsent(segment.videoId(), segment);
+            if (previous != null) {
+                return;
+            }
+        }
+        for (String term : segment.terms()) {
+            termSegments.compute(term, (key, set) -> {
+                Set<SearchSegment> target = set != null ? set : ConcurrentHashMap.newKeySet();
+                target.add(segment);
+                return target;
+            });
+        }
+        if (previous != null && previous != segment) {
+            unlinkTerms(previous);
+        }
+    }
+
+    private void unlinkTerms(SearchSegment segment) {
+        for (String term : segment.terms()) {
+            termSegments.computeIfPresent(term, (key, set) -> {
+                set.remove(segment);
+                return set.isEmpty() ? null : set;
+            });
+        }
+    }
+
+    private void loadAll() {
+        long startedAt = System.currentTimeMillis();
+        File[] videoDirs = new File(storagePath).listFiles(File::isDirectory);
+        if (videoDirs == null) {
+            return;
+        }
+        Map<String, String> titles = null;
+        int loaded = 0;
+        int rebuilt = 0;
+        for (File videoDir : videoDirs) {
+            File subsFile = new File(videoDir, AppConstants.Storage.SUBS_JSON);
+            if (!subsFile.exists()) {
+                continue;
+            }
+            try {
+                SearchSegment segment = readSegment(videoDir, subsFile.lastModified());
+                if (segment == null) {
+                    // 旧数据或 subs.json 已更新：从 subs.json 重建一次并写回段文件
+                    if (titles == null) {
+                        titles = titlesByVideo();
+                    }
+                    segment = SearchSegment.build(videoDir.getName(), titles.get(videoDir.getName()), subsFile.lastModified(), transcriptCodec.read(subsFile));
+                    writeSegment(videoDir, segment);
+                    rebuilt++;
+                }
+                add(segment, false);
+                loaded++;
+            } catch (Exception e) {
+                log.warn("Failed to load search segment for {}: {}", videoDir.getName(), e.getMessage());
+            }
+        }
+        log.info("Search index loaded {} videos ({} rebuilt from subs.json) in {} ms", loaded, rebuilt, System.currentTimeMillis() - startedAt);
+    }
+
+    /**
+     * Picks up segments written by other nodes since the last pass and drops videos whose
+     * subtitles are gone. Only reads segment files: a segment that is missing or older than
+     * its subs.json is left to the node that owns the video (or to the next full load).
+     */
+    void refresh() {
+        try {
+            int added = 0;
+            File[] videoDirs = new File(storagePath).listFiles(File::isDirectory);
+            if (videoDirs != null) {
+                for (File videoDir : videoDirs) {
+                    File subsFile = new File(videoDir, AppConstants.Storage.SUBS_JSON);
+                    long sourceModified = subsFile.lastModified();
+                    SearchSegment current = segments.get(videoDir.getName());
+                    if (sourceModified == 0 || (current != null && current.sourceModified() == sourceModified)) {
+                        continue;
+                    }
+                    SearchSegment segment = readSegment(videoDir, sourceModified);
+                    if (segment != null) {
+                        add(segment, true);
+                        added++;
+                    }
+                }
+            }
+            int dropped = 0;
+            for (String videoId : List.copyOf(segments.keySet())) {
+                if (!new File(new File(storagePath, videoId), AppConstants.Storage.SUBS_JSON).exists()) {
+                    SearchSegment removed = segments.remove(videoId);
+                    if (removed != null) {
+                        unlinkTerms(removed);
+                        dropped++;
+                    }
+                }
+            }
+            if (added > 0 || dropped > 0) {
+                log.info("Search index refresh: {} videos added or updated, {} dropped", added, dropped);
+            }
+        } catch (Exception e) {
+            log.warn("Search index refresh failed: {}", e.getMessage());
+        }
+    }
+
+    private SearchSegment readSegment(File videoDir, long sourceModified) {
+        File segmentFile = new File(videoDir, AppConstants.Storage.SEARCH_SEGMENT);
+        if (!segmentFile.exists()) {
+            return null;
+        }
+        try {
+            SearchSegment segment = SearchSegment.read(segmentFile);
+            return segment.sourceModified() == sourceModified && segment.videoId().equals(videoDir.getName()) ? segment : null;
+        } catch (IOException e) {
+            log.debug("Ignoring unreadable search segment {}: {}", segmentFile, e.getMessage());
+            return null;
+        }
+    }
+
+    private void writeSegment(File videoDir, SearchSegment segment) throws IOException {
+        File segmentFile = new File(videoDir, AppConstants.Storage.SEARCH_SEGMENT);
+        File tmpFile = Files.createTempFile(videoDir.toPath(), AppConstants.Storage.SEARCH_SEGMENT + ".", ".tmp").toFile();
+        try {
+            segment.write(tmpFile);
+            try {
+                Files.move(tmpFile.toPath(), segmentFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmpFile.toPath(), segmentFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tmpFile.toPath());
+        }
+    }
+
+    private Map<String, String> titlesByVideo() {
+        Map<String, String> titles = new HashMap<>();
+        for (MediaRepository.TaskEntry task : mediaRepository.getAllTasks()) {
+            if (task.videoId() != null && task.title() != null) {
+                titles.put(task.videoId(), task.title());
+            }
+        }
+        return titles;
+    }
+}
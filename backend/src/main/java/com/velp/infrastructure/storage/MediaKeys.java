@@ -0,0 +1,107 @@
+package com.velp.infrastructure.storage;
+
+import com.velp.common.constants.AppConstants;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+/**
+ * Derives storage keys from source URLs.
+ *
+ * A YouTube video is stored under {@code yt_<videoId>_<format fingerprint>}, so every URL form
+ * of the same video (watch, youtu.be, shorts, embed, extra query parameters) maps to one
+ * directory, while a change of the download format or subtitle languages starts a new one.
+ */
+public final class MediaKeys {
+
+    private static final Pattern YOUTUBE_ID = Pattern.compile("[A-Za-z0-9_-]{11}");
+    private static final String FORMAT_FINGERPRINT = fingerprint(AppConstants.YtDlp.FORMAT_BEST + "|" + AppConstants.YtDlp.SUB_LANGS);
+
+    private MediaKeys() {}
+
+    /**
+     * The content-addressed video id for a URL, or null when the source is not recognised
+     * (such tasks keep a random id).
+     */
+    public static String videoIdFor(String url) {
+        return youTubeId(url).map(id -> "yt_" + id + "_" + FORMAT_FINGERPRINT).orElse(null);
+    }
+
+    public static boolean sameSource(String url, String otherUrl) {
+        if (url == null || otherUrl == null) {
+            return false;
+        }
+        if (url.equals(otherUrl)) {
+            return true;
+        }
+        String key = videoIdFor(url);
+        return key != null && key.equals(videoIdFor(otherUrl));
+    }
+
+    static Optional<String> youTubeId(String url) {
+        if (url == null || url.isBlank()) {
+            return Optional.empty();
+        }
+        String trimmed = url.trim();
+        URI uri;
+        try {
+            uri = URI.create(trimmed.contains("://") ? trimmed : "https://" + trimmed);
+        } catch (IllegalArgumentException e) {
+            return Optional.empty();
+        }
+        String host = uri.getHost();
+        String path = uri.getPath() == null ? "" : uri.getPath();
+        if (host == null) {
+            return Optional.empty();
+        }
+        host = host.toLowerCase();
+        String candidate = null;
+        if (host.equals("youtu.be")) {
+            candidate = firstSegment(path);
+        } else if (host.equals("youtube.com") || host.endsWith(".youtube.com") || host.endsWith("youtube-nocookie.com")) {
+            candidate = queryParam(uri.getRawQuery(), "v");
+            if (candidate == null) {
+                for (String prefix : new String[]{"/shorts/", "/embed/", "/live/", "/v/"}) {
+                    if (path.startsWith(prefix)) {
+                        candidate = firstSegment(path.substring(prefix.length() - 1));
+                        break;
+                    }
+                }
+            }
+        }
+        return candidate != null && YOUTUBE_ID.matcher(candidate).matches() ? Optional.of(candidate) : Optional.empty();
+    }
+
+    private static String firstSegment(String path) {
+        String stripped = path.startsWith("/") ? path.substring(1) : path;
+        int slash = stripped.indexOf('/');
+        return slash >= 0 ? stripped.substring(0, slash) : stripped;
+    }
+
+    private static String queryParam(String query, String name) {
+        if (query == null) {
+            return null;
+        }
+        for (String pair : query.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0 && pair.substring(0, eq).equals(name)) {
+                return pair.substring(eq + 1);
+            }
+        }
+        return null;
+    }
+
+    private static String fingerprint(String value) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest, 0, 4);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,401 @@
+package com.velp.infrastructure.storage;
+
+import com.velp.common.constants.AppConstants;
+import com.velp.domain.model.TaskCheckpoint;
+import com.velp.domain.repository.MediaRepository;
+import com.velp.infrastructure.metrics.PipelineMetrics;
+import com.velp.infrastructure.search.SubtitleSearchIndex;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the download directory within its disk quota.
+ *
+ * 每个视频目录记录媒体文件大小与最近访问时间；最近访问时间写在目录下 .access 文件的 mtime 中
+ * （按间隔节流更新），多副本共享 PVC 时彼此可见，重启后也不会丢失。
+ * 同一视频的多个任务共享一个目录（见 {@link MediaKeys}），引用计数归零时目录随最后一个任务删除。
+ * 后台定期清理：先删除不被任何任务引用的孤儿目录，再在超出配额时按最近访问时间（LRU）
+ * 淘汰视频文件，字幕、subs.json 与搜索段等轻量文件保留。每轮删除数量有上限并在删除间隔停顿，避免集中 I/O。
+ */
+@Slf4j
+@Component
+public class StorageManager {
+
+    public static final String EVICT_QUOTA = "quota";
+    public static final String EVICT_ORPHAN = "orphan";
+    public static final String EVICT_RELEASED = "released";
+
+    private static final long ACCESS_TOUCH_INTERVAL_MS = TimeUnit.MINUTES.toMillis(5);
+    private static final long DELETE_PAUSE_MS = 50;
+
+    @Value("${velp.storage.path:downloads}")
+    private String storagePath;
+
+    @Value("${velp.storage.quota-mb:0}")
+    private long quotaMb;
+
+    @Value("${velp.storage.evict-to-ratio:0.9}")
+    private double evictToRatio;
+
+    @Value("${velp.storage.min-idle-minutes:60}")
+    private long minIdleMinutes;
+
+    @Value("${velp.storage.sweep-interval-minutes:15}")
+    private long sweepIntervalMinutes;
+
+    @Value("${velp.storage.max-deletes-per-sweep:20}")
+    private int maxDeletesPerSweep;
+
+    @Value("${velp.storage.orphan-grace-hours:24}")
+    private long orphanGraceHours;
+
+    private final MediaRepository mediaRepository;
+    private final SubtitleSearchIndex searchIndex;
+    private final PipelineMetrics metrics;
+    private final Map<String, VideoUsage> usage = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService sweeper;
+
+    public StorageManager(MediaRepository mediaRepository, SubtitleSearchIndex searchIndex, PipelineMetrics metrics) {
+        this.mediaRepository = mediaRepository;
+        this.searchIndex = searchIndex;
+        this.metrics = metrics;
+        this.sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "storage-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        metrics.gauge("velp.storage.used.bytes", this::usedBytes);
+        metrics.gauge("velp.storage.media.bytes", this::mediaBytes);
+    }
+
+    /**
+     * Size and recency of one video directory. Media bytes are the evictable part.
+     */
+    private static final class VideoUsage {
+        private volatile long mediaBytes;
+        private volatile long artifactBytes;
+        private volatile long lastAccess;
+        private volatile long lastTouched;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        long intervalMinutes = Math.max(1, sweepIntervalMinutes);
+        sweeper.scheduleWithFixedDelay(this::sweep, 1, intervalMinutes, TimeUnit.MINUTES);
+        log.info("Storage sweeper started (quota: {} MB, interval: {} min)", quotaMb > 0 ? quotaMb : "unlimited", intervalMinutes);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sweeper.shutdownNow();
+    }
+
+    /**
+     * Called by the serving endpoints. Cheap on the hot path: the marker file is only touched
+     * once per interval per video.
+     */
+    public void recordAccess(String videoId) {
+        if (!isVideoId(videoId)) {
+            return;
+        }
+        File videoDir = new File(storagePath, videoId);
+        if (!videoDir.isDirectory()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        VideoUsage entry = usage.computeIfAbsent(videoId, key -> new VideoUsage());
+        entry.lastAccess = now;
+        if (now - entry.lastTouched < ACCESS_TOUCH_INTERVAL_MS) {
+            return;
+        }
+        entry.lastTouched = now;
+        File marker = new File(videoDir, AppConstants.Storage.ACCESS_MARKER);
+        try {
+            if (!marker.exists()) {
+                marker.createNewFile();
+            }
+            Files.setLastModifiedTime(marker.toPath(), FileTime.fromMillis(now));
+        } catch (IOException e) {
+            log.debug("Failed to touch access marker for {}: {}", videoId, e.getMessage());
+        }
+    }
+
+    /**
+     * Re-measures a video directory after a task wrote to it.
+     */
+    public void recordStored(String videoId) {
+        File videoDir = new File(storagePath, videoId);
+        if (videoDir.isDirectory()) {
+            VideoUsage entry = measure(videoDir);
+            entry.lastAccess = System.currentTimeMillis();
+        }
+    }
+
+    public long usedBytes() {
+        long total = 0;
+        for (VideoUsage entry : usage.values()) {
+            total += entry.mediaBytes + entry.artifactBytes;
+        }
+        return total;
+    }
+
+    private long mediaBytes() {
+        long total = 0;
+        for (VideoUsage entry : usage.values()) {
+            total += entry.mediaBytes;
+        }
+        return total;
+    }
+
+    public static boolean isMediaFile(String name) {
+        return name.startsWith(AppConstants.Storage.VIDEO_PREFIX)
+                && !name.endsWith(AppConstants.Storage.VTT_EXT)
+                && !name.endsWith(AppConstants.Storage.JSON_EXT);
+    }
+
+    /**
+     * The final media file yt-dlp leaves behind ({@code video.<ext>}), as opposed to
+     * {@code .part} downloads and per-format streams ({@code video.f137.mp4}) awaiting a merge.
+     */
+    public static boolean isCompleteMedia(String name) {
+        return isMediaFile(name) && name.indexOf('.', AppConstants.Storage.VIDEO_PREFIX.length()) < 0;
+    }
+
+    public static boolean hasCompleteMedia(File videoDir) {
+        File[] media = videoDir.listFiles((dir, name) -> isCompleteMedia(name));
+        return media != null && media.length > 0;
+    }
+
+    /**
+     * Deletes a video directory once the last task referencing it is gone.
+     */
+    public void release(String videoId) {
+        release(List.of(videoId));
+    }
+
+    /**
+     * Deletes every given video directory that no task references any more. References are
+     * read from the repository once per call rather than kept as counters, so they are exact
+     * across replicas and restarts.
+     */
+    public void release(Collection<String> videoIds) {
+        Set<String> candidates = new HashSet<>();
+        for (String videoId : videoIds) {
+            if (isVideoId(videoId) && new File(storagePath, videoId).isDirectory()) {
+                candidates.add(videoId);
+            }
+        }
+        if (candidates.isEmpty()) {
+            return;
+        }
+        candidates.removeAll(referencedVideos(new HashSet<>()));
+        for (String videoId : candidates) {
+            long freed = deleteDirectory(new File(storagePath, videoId));
+            usage.remove(videoId);
+            searchIndex.remove(videoId);
+            metrics.recordStorageEviction(EVICT_RELEASED, freed);
+            log.info("Released video directory {} ({} bytes), no task references it", videoId, freed);
+        }
+    }
+
+    void sweep() {
+        try {
+            File[] videoDirs = new File(storagePath).listFiles(file -> file.isDirectory() && isVideoId(file.getName()));
+            if (videoDirs == null) {
+                return;
+            }
+            Set<String> present = new HashSet<>();
+            for (File videoDir : videoDirs) {
+                present.add(videoDir.getName());
+                measure(videoDir);
+            }
+            usage.keySet().retainAll(present);
+
+            Set<String> inUse = new HashSet<>();
+            Set<String> referenced = referencedVideos(inUse);
+            int deletes = collectOrphans(videoDirs, referenced);
+            if (quotaMb > 0 && deletes < maxDeletesPerSweep) {
+                enforceQuota(inUse, maxDeletesPerSweep - deletes);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.warn("Storage sweep failed: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Every video directory a task points at, either as its result or through its checkpoint.
+     * Videos of tasks still pending or processing are also added to {@code inUse}.
+     */
+    private Set<String> referencedVideos(Set<String> inUse) {
+        Set<String> referenced = new HashSet<>();
+        for (MediaRepository.TaskEntry task : mediaRepository.getAllTasks()) {
+            boolean active = AppConstants.TaskStatus.PENDING.equals(task.status()) || AppConstants.TaskStatus.PROCESSING.equals(task.status());
+            String videoId = videoIdOf(task);
+            if (videoId == null) {
+                continue;
+            }
+            referenced.add(videoId);
+            if (active) {
+                inUse.add(videoId);
+            }
+        }
+        return referenced;
+    }
+
+    /**
+     * The directory a task uses: its result, else its checkpoint, else the content-addressed
+     * id of its URL (a pending task has neither yet).
+     */
+    public String videoIdOf(MediaRepository.TaskEntry task) {
+        if (task.videoId() != null) {
+            return task.videoId();
+        }
+        return mediaRepository.getCheckpoint(task.taskId())
+                .map(TaskCheckpoint::getVideoId)
+                .orElseGet(() -> MediaKeys.videoIdFor(task.url()));
+    }
+
+    private int collectOrphans(File[] videoDirs, Set<String> referenced) throws InterruptedException {
+        long cutoff = System.currentTimeMillis() - TimeUnit.HOURS.toMillis(orphanGraceHours);
+        int deletes = 0;
+        for (File videoDir : videoDirs) {
+            if (deletes >= maxDeletesPerSweep) {
+                break;
+            }
+            String videoId = videoDir.getName();
+            // 刚创建、任务尚未写入断点的目录同样不被引用，宽限期保护这类目录
+            if (referenced.contains(videoId) || lastActivity(videoDir) > cutoff) {
+                continue;
+            }
+            long freed = deleteDirectory(videoDir);
+            usage.remove(videoId);
+            searchIndex.remove(videoId);
+            metrics.recordStorageEviction(EVICT_ORPHAN, freed);
+            log.info("Removed orphaned video directory {} ({} bytes)", videoId, freed);
+            deletes++;
+            Thread.sleep(DELETE_PAUSE_MS);
+        }
+        return deletes;
+    }
+
+    private void enforceQuota(Set<String> inUse, int maxDeletes) throws InterruptedException {
+        long quotaBytes = quotaMb * 1024 * 1024;
+        long used = usedBytes();
+        if (used <= quotaBytes) {
+            return;
+        }
+        long target = (long) (quotaBytes * evictToRatio);
+        long idleCutoff = System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(minIdleMinutes);
+        List<Map.Entry<String, VideoUsage>> candidates = new ArrayList<>();
+        for (Map.Entry<String, VideoUsage> entry : usage.entrySet()) {
+            VideoUsage video = entry.getValue();
+            if (video.mediaBytes > 0 && video.lastAccess < idleCutoff && !inUse.contains(entry.getKey())) {
+                candidates.add(entry);
+            }
+        }
+        candidates.sort(Comparator.comparingLong(entry -> entry.getValue().lastAccess));
+
+        int deletes = 0;
+        for (Map.Entry<String, VideoUsage> candidate : candidates) {
+            if (used <= target || deletes >= maxDeletes) {
+                break;
+            }
+            long freed = evictMedia(new File(storagePath, candidate.getKey()));
+            candidate.getValue().mediaBytes = 0;
+            used -= freed;
+            metrics.recordStorageEviction(EVICT_QUOTA, freed);
+            log.info("Evicted media of {} ({} bytes, last access {})", candidate.getKey(), freed, candidate.getValue().lastAccess);
+            deletes++;
+            Thread.sleep(DELETE_PAUSE_MS);
+        }
+        if (used > quotaBytes) {
+            log.warn("Storage still over quota after sweep: {} MB used of {} MB", used / (1024 * 1024), quotaMb);
+        }
+    }
+
+    private VideoUsage measure(File videoDir) {
+        VideoUsage entry = usage.computeIfAbsent(videoDir.getName(), key -> new VideoUsage());
+        long media = 0;
+        long artifacts = 0;
+        File[] files = videoDir.listFiles(File::isFile);
+        if (files != null) {
+            for (File file : files) {
+                if (isMediaFile(file.getName())) {
+                    media += file.length();
+                } else {
+                    artifacts += file.length();
+                }
+            }
+        }
+        entry.mediaBytes = media;
+        entry.artifactBytes = artifacts;
+        // 其他副本通过 .access 的 mtime 记录的访问同样计入
+        entry.lastAccess = Math.max(entry.lastAccess, lastActivity(videoDir));
+        return entry;
+    }
+
+    private long lastActivity(File videoDir) {
+        File marker = new File(videoDir, AppConstants.Storage.ACCESS_MARKER);
+        if (marker.exists()) {
+            return marker.lastModified();
+        }
+        File subs = new File(videoDir, AppConstants.Storage.SUBS_JSON);
+        return Math.max(videoDir.lastModified(), subs.exists() ? subs.lastModified() : 0);
+    }
+
+    private long evictMedia(File videoDir) {
+        long freed = 0;
+        File[] media = videoDir.listFiles(file -> file.isFile() && isMediaFile(file.getName()));
+        if (media != null) {
+            for (File file : media) {
+                long length = file.length();
+                if (file.delete()) {
+                    freed += length;
+                }
+            }
+        }
+        return freed;
+    }
+
+    private long deleteDirectory(File videoDir) {
+        long freed = 0;
+        File[] files = videoDir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                long length = file.length();
+                if (file.delete()) {
+                    freed += length;
+                }
+            }
+        }
+        videoDir.delete();
+        return freed;
+    }
+
+    private static boolean isVideoId(String name) {
+        return name != null && !name.isEmpty() && !name.startsWith(".")
+                && name.indexOf('/') < 0 && name.indexOf('\\') < 0;
+    }
+}
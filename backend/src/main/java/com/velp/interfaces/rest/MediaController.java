@@ -2,16 +2,22 @@ package com.velp.interfaces.rest;
 
 import com.velp.application.MediaApplicationService;
 import com.velp.common.constants.AppConstants;
+import com.velp.domain.model.StageTrace;
 import com.velp.domain.repository.MediaRepository;
-import com.velp.interfaces.rest.dto.CourseDetailResponse;
+import com.velp.interfaces.rest.dto.BulkAnalyzeRequest;
+import com.velp.interfaces.rest.dto.BulkTaskResponse;
 import com.velp.interfaces.rest.dto.ParserStatusResponse;
+import com.velp.interfaces.rest.dto.SearchResponse;
+import com.velp.interfaces.rest.dto.SubtitleWindowResponse;
 import com.velp.interfaces.rest.dto.TaskResponse;
+import com.velp.interfaces.rest.dto.TaskTraceResponse;
 import org.springframework.core.io.FileSystemResource;
 import org.springframework.core.io.Resource;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.io.File;
 import java.util.List;
@@ -37,6 +43,19 @@ public class MediaController {
         return new TaskResponse(taskId, AppConstants.TaskStatus.PROCESSING, AppConstants.Messages.TASK_SUBMITTED);
     }
 
+    @PostMapping("/parser/bulk")
+    public BulkTaskResponse analyzeBulk(@RequestBody BulkAnalyzeRequest body) {
+        List<String> urls = body.getUrls() == null ? List.of() : body.getUrls().stream()
+                .filter(url -> url != null && !url.isBlank())
+                .map(String::trim)
+                .distinct()
+                .toList();
+        if (urls.isEmpty()) {
+            throw new IllegalArgumentException("At least one URL is required");
+        }
+        return mediaApplicationService.submitBulk(urls);
+    }
+
     @GetMapping("/parser/status/{taskId}")
     public ParserStatusResponse getStatus(@PathVariable String taskId) {
         MediaRepository.TaskStatus status = mediaApplicationService.getTaskStatus(taskId);
@@ -48,6 +67,17 @@ public class MediaController {
         return mediaApplicationService.getAllTasks();
     }
 
+    @GetMapping("/parser/tasks/{taskId}/trace")
+    public ResponseEntity<TaskTraceResponse> getTaskTrace(@PathVariable String taskId) {
+        MediaRepository.TaskStatus status = mediaApplicationService.getTaskStatus(taskId);
+        return mediaApplicationService.getTaskTrace(taskId)
+                .map(trace -> {
+                    long total = trace.getStages().stream().mapToLong(StageTrace::getDurationMs).sum();
+                    return ResponseEntity.ok(new TaskTraceResponse(taskId, status.status(), total, trace.getStages()));
+                })
+                .orElse(ResponseEntity.notFound().build());
+    }
+
     @DeleteMapping("/parser/tasks/{taskId}")
     public void deleteTask(@PathVariable String taskId) {
         mediaApplicationService.deleteTask(taskId);
@@ -59,8 +89,35 @@ public class MediaController {
     }
 
     @GetMapping("/course/{videoId}/detail")
-    public CourseDetailResponse getCourseDetail(@PathVariable String videoId) {
-        return mediaApplicationService.getCourseDetail(videoId);
+    public ResponseEntity<StreamingResponseBody> getCourseDetail(@PathVariable String videoId) {
+        MediaApplicationService.CourseDetail detail = mediaApplicationService.getCourseDetail(videoId);
+        // Subtitles are written straight from the transcript to the response instead of being bound to DTOs first
+        StreamingResponseBody body = out -> mediaApplicationService.writeCourseDetail(detail, out);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(body);
+    }
+
+    @GetMapping("/course/{videoId}/subtitles")
+    public SubtitleWindowResponse getSubtitles(@PathVariable String videoId,
+                                               @RequestParam(defaultValue = "0") double from,
+                                               @RequestParam(required = false) Double to) {
+        if (from < 0 || (to != null && to <= from)) {
+            throw new IllegalArgumentException("Invalid subtitle window: from must be >= 0 and less than to");
+        }
+        return mediaApplicationService.getSubtitleWindow(videoId, from, to);
+    }
+
+    @GetMapping("/search")
+    public SearchResponse search(@RequestParam("q") String query,
+                                 @RequestParam(defaultValue = "20") int limit) {
+        if (query.isBlank()) {
+            throw new IllegalArgumentException("Query is required");
+        }
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Invalid limit: must be greater than 0");
+        }
+        return mediaApplicationService.search(query, limit);
     }
 
     @GetMapping("/course/{videoId}/download")
@@ -0,0 +1,14 @@
+package com.velp.interfaces.rest.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BulkAnalyzeRequest {
+    // Playlist and/or single video URLs
+    private List<String> urls;
+}
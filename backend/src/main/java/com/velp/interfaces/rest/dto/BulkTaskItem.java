@@ -0,0 +1,15 @@
+package com.velp.interfaces.rest.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BulkTaskItem {
+    private String url;
+    private String title;
+    private String taskId;
+    private boolean created;
+}
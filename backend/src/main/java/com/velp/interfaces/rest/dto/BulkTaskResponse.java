@@ -0,0 +1,15 @@
+package com.velp.interfaces.rest.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BulkTaskResponse {
+    private int total;
+    private int created;
+    private List<BulkTaskItem> tasks;
+}
@@ -0,0 +1,19 @@
+package com.velp.interfaces.rest.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class SearchHitDto {
+    private String videoId;
+    private String title;
+    private double startTime;
+    private double endTime;
+    // Text column the query matched in: "en" or "cn"
+    private String field;
+    private String text;
+    private double score;
+}
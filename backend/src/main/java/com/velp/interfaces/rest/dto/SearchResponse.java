@@ -0,0 +1,16 @@
+package com.velp.interfaces.rest.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class SearchResponse {
+    private String query;
+    private int total;
+    private long tookMs;
+    private List<SearchHitDto> hits;
+}
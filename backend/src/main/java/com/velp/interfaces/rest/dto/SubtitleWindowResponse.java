@@ -8,8 +8,9 @@ import java.util.List;
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
-public class CourseDetailResponse {
-    private String title;
-    private String videoUrl;
+public class SubtitleWindowResponse {
+    private double from;
+    private double to;
+    private int total;
     private List<SubtitleLineDto> subtitles;
 }
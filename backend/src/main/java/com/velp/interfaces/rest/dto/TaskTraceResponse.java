@@ -0,0 +1,17 @@
+package com.velp.interfaces.rest.dto;
+
+import com.velp.domain.model.StageTrace;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class TaskTraceResponse {
+    private String taskId;
+    private String status;
+    private long totalDurationMs;
+    private List<StageTrace> stages;
+}
@@ -0,0 +1,40 @@
+package com.velp.infrastructure.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SearchTokenizerTest {
+
+    @Test
+    void lowerCasesWordsAndKeepsInnerApostrophes() {
+        assertThat(SearchTokenizer.tokenize("Don't STOP—now’s the time"))
+                .containsExactly("don't", "stop", "now's", "the", "time");
+    }
+
+    @Test
+    void dropsTrailingApostrophes() {
+        assertThat(SearchTokenizer.tokenize("the dogs' toys'")).containsExactly("the", "dogs", "toys");
+    }
+
+    @Test
+    void splitsIdeographsIntoSingleCharacterTerms() {
+        assertThat(SearchTokenizer.tokenize("【译】我爱AI学习2024"))
+                .containsExactly("译", "我", "爱", "ai", "学", "习", "2024");
+    }
+
+    @Test
+    void returnsNoTokensForBlankInput() {
+        assertThat(SearchTokenizer.tokenize(null)).isEmpty();
+        assertThat(SearchTokenizer.tokenize("")).isEmpty();
+        assertThat(SearchTokenizer.tokenize(" -- ... ")).isEmpty();
+    }
+
+    @Test
+    void parsesQuotedTextAsPhraseClauses() {
+        assertThat(SubtitleSearchIndex.parseQuery("fox \"Quick brown\" 世界"))
+                .containsExactly(List.of("fox"), List.of("quick", "brown"), List.of("世"), List.of("界"));
+    }
+}
@@ -0,0 +1,157 @@
+package com.velp.infrastructure.search;
+
+import com.velp.common.constants.AppConstants;
+import com.velp.domain.model.Transcript;
+import com.velp.domain.repository.MediaRepository;
+import com.velp.infrastructure.metrics.PipelineMetrics;
+import com.velp.infrastructure.parser.TranscriptJsonCodec;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class SubtitleSearchIndexTest {
+
+    @TempDir
+    Path storage;
+
+    private SubtitleSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = newIndex();
+    }
+
+    @Test
+    void phraseRequiresAdjacentWordsWhileLooseTermsOnlyShareTheCue() throws IOException {
+        index(index, "video1", transcript(
+                "the quick brown fox", null,
+                "brown dogs are quick", null));
+
+        SubtitleSearchIndex.Result phrase = index.search("\"quick brown\"", 10);
+        assertThat(phrase.total()).isEqualTo(1);
+        assertThat(phrase.hits().get(0).text()).isEqualTo("the quick brown fox");
+        assertThat(phrase.hits().get(0).startMs()).isEqualTo(0);
+
+        assertThat(index.search("quick brown", 10).total()).isEqualTo(2);
+        assertThat(index.search("quick cat", 10).total()).isZero();
+    }
+
+    @Test
+    void searchesTheTranslationColumnAndTagsTheField() throws IOException {
+        index(index, "video1", transcript(
+                "hello world", "【译】你好世界",
+                "good morning", "【译】早上好"));
+
+        SubtitleSearchIndex.Result translated = index.search("译", 10);
+        assertThat(translated.total()).isEqualTo(2);
+        assertThat(translated.hits()).allSatisfy(hit -> assertThat(hit.field()).isEqualTo(SubtitleSearchIndex.FIELD_CN));
+
+        SubtitleSearchIndex.Result phrase = index.search("\"世界\"", 10);
+        assertThat(phrase.hits()).singleElement().satisfies(hit -> {
+            assertThat(hit.text()).isEqualTo("【译】你好世界");
+            assertThat(hit.field()).isEqualTo(SubtitleSearchIndex.FIELD_CN);
+        });
+
+        assertThat(index.search("morning", 10).hits()).singleElement()
+                .satisfies(hit -> assertThat(hit.field()).isEqualTo(SubtitleSearchIndex.FIELD_EN));
+        // Clauses must match within one column of one cue
+        assertThat(index.search("morning 早", 10).total()).isZero();
+    }
+
+    @Test
+    void returnsTheBestHitsFirstAndCountsAllMatches() throws IOException {
+        index(index, "video1", transcript(
+                "fox", null,
+                "a fox and another fox", null,
+                "the fox", null));
+        index(index, "video2", transcript("no animals here", null));
+
+        SubtitleSearchIndex.Result result = index.search("fox", 2);
+        assertThat(result.total()).isEqualTo(3);
+        assertThat(result.hits()).hasSize(2);
+        // Two occurrences outscore one; ties go to the earlier cue
+        assertThat(result.hits().get(0).text()).isEqualTo("a fox and another fox");
+        assertThat(result.hits().get(1).text()).isEqualTo("fox");
+        assertThat(result.hits().get(0).score()).isGreaterThan(result.hits().get(1).score());
+    }
+
+    @Test
+    void reindexingReplacesAndRemovingDropsAVideo() throws IOException {
+        index(index, "video1", transcript("old words", null));
+        index(index, "video1", transcript("new words", null));
+
+        assertThat(index.search("old", 10).total()).isZero();
+        assertThat(index.search("new", 10).total()).isEqualTo(1);
+
+        index.remove("video1");
+        assertThat(index.search("words", 10).total()).isZero();
+        assertThat(storage.resolve("video1").resolve(AppConstants.Storage.SEARCH_SEGMENT)).doesNotExist();
+    }
+
+    @Test
+    void refreshLoadsSegmentsWrittenByAnotherNode() throws IOException {
+        SubtitleSearchIndex otherNode = newIndex();
+        index(otherNode, "video1", transcript("shared storage", "【译】共享存储"));
+
+        assertThat(index.search("shared", 10).total()).isZero();
+        index.refresh();
+        assertThat(index.search("shared", 10).total()).isEqualTo(1);
+        assertThat(index.search("\"存储\"", 10).total()).isEqualTo(1);
+
+        Files.delete(storage.resolve("video1").resolve(AppConstants.Storage.SUBS_JSON));
+        index.refresh();
+        assertThat(index.search("shared", 10).total()).isZero();
+    }
+
+    @Test
+    void cuesOverSixtyFourKilobytesAreWrittenToTheSegment() throws IOException {
+        // 30k CJK characters encode to about 90 KB of UTF-8
+        String longCue = "needle " + "长".repeat(30_000);
+        index(index, "video1", transcript(longCue, null));
+
+        SubtitleSearchIndex otherNode = newIndex();
+        otherNode.refresh();
+        assertThat(otherNode.search("needle", 10).hits()).singleElement()
+                .satisfies(hit -> assertThat(hit.text()).isEqualTo(longCue));
+    }
+
+    private SubtitleSearchIndex newIndex() {
+        SubtitleSearchIndex searchIndex = new SubtitleSearchIndex(
+                mock(TranscriptJsonCodec.class), mock(MediaRepository.class), mock(PipelineMetrics.class));
+        ReflectionTestUtils.setField(searchIndex, "storagePath", storage.toString());
+        return searchIndex;
+    }
+
+    /**
+     * Indexes a transcript the way the pipeline does: subs.json exists first and its
+     * modification time identifies the segment.
+     */
+    private void index(SubtitleSearchIndex searchIndex, String videoId, Transcript transcript) throws IOException {
+        File videoDir = storage.resolve(videoId).toFile();
+        videoDir.mkdirs();
+        File subs = new File(videoDir, AppConstants.Storage.SUBS_JSON);
+        Files.writeString(subs.toPath(), "[]");
+        searchIndex.index(videoId, "Title " + videoId, transcript);
+    }
+
+    /**
+     * Cues of one second each from alternating (en, cn) arguments.
+     */
+    private static Transcript transcript(String... texts) {
+        Transcript.Builder builder = Transcript.builder();
+        for (int i = 0; i < texts.length; i += 2) {
+            long start = i / 2 * 1000L;
+            builder.add(start, start + 1000, texts[i], texts[i + 1]);
+        }
+        return builder.build();
+    }
+}
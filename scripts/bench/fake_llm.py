@@ -0,0 +1,100 @@
+#!/usr/bin/env python3
+"""OpenAI-compatible stand-in for the translation provider used by the soak benchmark.
+
+Answers POST .../chat/completions with a JSON array holding one "translation" per input
+line, after a latency of --latency-ms plus --per-line-ms for every line. --error-rate
+makes that share of requests fail with 503, and --rate-limit-rate answers with 429 and a
+Retry-After header, so the retry and breaker paths can be soaked too. GET /stats
+returns the request counters.
+"""
+import argparse
+import json
+import random
+import threading
+import time
+from http.server import BaseHTTPRequestHandler, ThreadingHTTPServer
+
+stats = {"requests": 0, "lines": 0, "errors": 0, "rate_limited": 0}
+stats_lock = threading.Lock()
+
+
+def count(key, amount=1):
+    with stats_lock:
+        stats[key] += amount
+
+
+class Handler(BaseHTTPRequestHandler):
+    protocol_version = "HTTP/1.1"
+    args = None
+
+    def log_message(self, fmt, *values):
+        pass
+
+    def send_json(self, status, payload, headers=None):
+        body = json.dumps(payload, ensure_ascii=False).encode("utf-8")
+        self.send_response(status)
+        self.send_header("Content-Type", "application/json; charset=utf-8")
+        self.send_header("Content-Length", str(len(body)))
+        for name, value in (headers or {}).items():
+            self.send_header(name, value)
+        self.end_headers()
+        self.wfile.write(body)
+
+    def do_GET(self):
+        if self.path.rstrip("/") == "/stats":
+            with stats_lock:
+                self.send_json(200, dict(stats))
+        else:
+            self.send_json(404, {"error": "not found"})
+
+    def do_POST(self):
+        length = int(self.headers.get("Content-Length", 0))
+        request = json.loads(self.rfile.read(length) or b"{}")
+        if not self.path.rstrip("/").endswith("/chat/completions"):
+            self.send_json(404, {"error": "not found"})
+            return
+        count("requests")
+        roll = random.random()
+        if roll < self.args.rate_limit_rate:
+            count("rate_limited")
+            self.send_json(429, {"error": {"message": "rate limited"}}, {"Retry-After": "1"})
+            return
+        if roll < self.args.rate_limit_rate + self.args.error_rate:
+            count("errors")
+            self.send_json(503, {"error": {"message": "injected failure"}})
+            return
+
+        user = next((m["content"] for m in reversed(request.get("messages", [])) if m.get("role") == "user"), "[]")
+        try:
+            lines = json.loads(user)
+        except ValueError:
+            lines = user.splitlines()
+        count("lines", len(lines))
+        time.sleep((self.args.latency_ms + self.args.per_line_ms * len(lines)) / 1000.0)
+        content = json.dumps(["【译】" + str(line) for line in lines], ensure_ascii=False)
+        self.send_json(200, {
+            "id": "bench",
+            "object": "chat.completion",
+            "model": request.get("model", "bench"),
+            "choices": [{"index": 0, "finish_reason": "stop",
+                         "message": {"role": "assistant", "content": content}}],
+            "usage": {"prompt_tokens": len(user) // 4, "completion_tokens": len(content) // 4},
+        })
+
+
+def main():
+    parser = argparse.ArgumentParser(description=__doc__.splitlines()[0])
+    parser.add_argument("--port", type=int, default=18080)
+    parser.add_argument("--latency-ms", type=float, default=300)
+    parser.add_argument("--per-line-ms", type=float, default=5)
+    parser.add_argument("--error-rate", type=float, default=0.0)
+    parser.add_argument("--rate-limit-rate", type=float, default=0.0)
+    Handler.args = parser.parse_args()
+    server = ThreadingHTTPServer(("127.0.0.1", Handler.args.port), Handler)
+    server.daemon_threads = True
+    print(f"fake LLM listening on http://127.0.0.1:{Handler.args.port}", flush=True)
+    server.serve_forever()
+
+
+if __name__ == "__main__":
+    main()
@@ -0,0 +1,148 @@
+#!/usr/bin/env bash
+# 端到端压测：用 yt-dlp 替身和本地假 LLM 跑完整流水线（下载 → 解析 → 翻译 → 写出），
+# 分别在 memory 与 redis 两种存储库下提交 N 个并发任务，输出吞吐、各阶段耗时、仓库操作、堆与 GC。
+#
+# 用法：scripts/bench/run.sh [memory|redis ...]        默认两种模式都跑
+# 常用环境变量：
+#   BENCH_TASKS=50 BENCH_CONCURRENCY=10 BENCH_WORKERS=4   任务数 / 客户端并发 / 每节点 worker 数
+#   BENCH_DOWNLOAD_MS=2000 BENCH_VIDEO_KB=2048            yt-dlp 替身的下载耗时与文件大小
+#   BENCH_LLM_LATENCY_MS=300 BENCH_LLM_PER_LINE_MS=5      假 LLM 的延迟
+#   BENCH_LLM_ERROR_RATE=0 BENCH_LLM_429_RATE=0           假 LLM 注入的失败率
+#   BENCH_JAVA_OPTS="-Xmx512m"                             后端 JVM 参数
+#   BENCH_REDIS_HOST / BENCH_REDIS_PORT                   使用已有 Redis；否则启动本地 redis-server 或 docker 容器
+set -euo pipefail
+
+bench_dir="$(cd "$(dirname "$0")" && pwd)"
+repo_root="$(cd "$bench_dir/../.." && pwd)"
+backend_dir="$repo_root/backend"
+
+tasks="${BENCH_TASKS:-50}"
+concurrency="${BENCH_CONCURRENCY:-10}"
+workers="${BENCH_WORKERS:-4}"
+app_port="${BENCH_APP_PORT:-19090}"
+llm_port="${BENCH_LLM_PORT:-18080}"
+redis_port="${BENCH_REDIS_PORT:-16379}"
+redis_host="${BENCH_REDIS_HOST:-}"
+java_opts="${BENCH_JAVA_OPTS:--Xmx512m}"
+run_id="$(date +%Y%m%d-%H%M%S)"
+work_dir="${BENCH_WORK_DIR:-$repo_root/bench-results/$run_id}"
+modes=("$@")
+[ ${#modes[@]} -eq 0 ] && modes=(memory redis)
+
+export BENCH_DOWNLOAD_MS="${BENCH_DOWNLOAD_MS:-2000}"
+export BENCH_VIDEO_KB="${BENCH_VIDEO_KB:-2048}"
+
+pids=()
+redis_container=""
+cleanup() {
+  for pid in ${pids[@]+"${pids[@]}"}; do
+    kill "$pid" 2>/dev/null || true
+  done
+  wait 2>/dev/null || true
+  if [ -n "$redis_container" ]; then
+    docker rm -f "$redis_container" >/dev/null 2>&1 || true
+  fi
+}
+trap cleanup EXIT
+
+wait_for() {
+  local url="$1" seconds="$2"
+  for _ in $(seq 1 "$seconds"); do
+    if curl -fsS "$url" >/dev/null 2>&1; then
+      return 0
+    fi
+    sleep 1
+  done
+  echo "Timed out waiting for $url" >&2
+  return 1
+}
+
+jar="$(ls "$backend_dir"/target/*.jar 2>/dev/null | grep -v '\.original$' | head -n 1 || true)"
+if [ -z "$jar" ]; then
+  echo "Building backend jar..."
+  (cd "$backend_dir" && "${MVN:-mvn}" -B -q -DskipTests package)
+  jar="$(ls "$backend_dir"/target/*.jar | grep -v '\.original$' | head -n 1)"
+fi
+
+mkdir -p "$work_dir"
+echo "Results: $work_dir"
+
+python3 "$bench_dir/fake_llm.py" --port "$llm_port" \
+  --latency-ms "${BENCH_LLM_LATENCY_MS:-300}" --per-line-ms "${BENCH_LLM_PER_LINE_MS:-5}" \
+  --error-rate "${BENCH_LLM_ERROR_RATE:-0}" --rate-limit-rate "${BENCH_LLM_429_RATE:-0}" \
+  > "$work_dir/fake-llm.log" 2>&1 &
+pids+=($!)
+wait_for "http://127.0.0.1:$llm_port/stats" 10
+
+start_redis() {
+  if [ -n "$redis_host" ]; then
+    return
+  fi
+  redis_host="127.0.0.1"
+  if command -v redis-server >/dev/null 2>&1; then
+    redis-server --port "$redis_port" --save "" --appendonly no > "$work_dir/redis.log" 2>&1 &
+    pids+=($!)
+  elif command -v docker >/dev/null 2>&1; then
+    redis_container="velp-bench-redis-$run_id"
+    docker run -d --rm --name "$redis_container" -p "$redis_port:6379" redis:7-alpine >/dev/null
+  else
+    echo "redis mode needs redis-server, docker, or BENCH_REDIS_HOST" >&2
+    exit 1
+  fi
+  for _ in $(seq 1 20); do
+    if (exec 3<>"/dev/tcp/127.0.0.1/$redis_port") 2>/dev/null; then
+      return
+    fi
+    sleep 0.5
+  done
+  echo "Redis did not start on port $redis_port" >&2
+  exit 1
+}
+
+status=0
+for mode in "${modes[@]}"; do
+  mode_dir="$work_dir/$mode"
+  mkdir -p "$mode_dir/downloads"
+  extra_args=()
+  if [ "$mode" = "redis" ]; then
+    start_redis
+    extra_args+=("--spring.data.redis.host=$redis_host" "--spring.data.redis.port=$redis_port")
+  fi
+
+  # GC 日志单独保存，便于和 /actuator/metrics 中的 jvm.gc.pause 对照
+  # shellcheck disable=SC2086
+  java $java_opts "-Xlog:gc*:file=$mode_dir/gc.log" -jar "$jar" \
+    "--server.port=$app_port" \
+    "--management.endpoint.health.probes.enabled=true" \
+    "--velp.repository.type=$mode" \
+    "--velp.storage.path=$mode_dir/downloads" \
+    "--velp.ytdlp.path=$bench_dir/fake-yt-dlp" \
+    "--velp.worker.concurrency=$workers" \
+    "--velp.storage.quota-mb=0" \
+    "--velp.llm.warm-start.enabled=false" \
+    "--velp.llm.preferred=llm" \
+    "--velp.llm.fallback-providers=" \
+    "--velp.llm.enabled=true" \
+    "--velp.llm.api-key=bench" \
+    "--velp.llm.base-url=http://127.0.0.1:$llm_port" \
+    "--velp.llm.model=bench" \
+    "--velp.llm.doubao.enabled=false" \
+    "--velp.llm.deepseek.enabled=false" \
+    ${extra_args[@]+"${extra_args[@]}"} \
+    > "$mode_dir/backend.log" 2>&1 &
+  backend_pid=$!
+  pids+=("$backend_pid")
+  # 只等存活探针：聚合健康状态会包含外部依赖，依赖缺失时不应让压测一直等到超时
+  wait_for "http://127.0.0.1:$app_port/actuator/health/liveness" 120
+
+  python3 "$bench_dir/soak.py" --base-url "http://127.0.0.1:$app_port" \
+    --tasks "$tasks" --concurrency "$concurrency" --label "$mode" --run-id "$run_id" \
+    --report "$mode_dir/report.json" || status=1
+  curl -fsS "http://127.0.0.1:$app_port/actuator/prometheus" > "$mode_dir/prometheus.txt" || true
+
+  kill "$backend_pid" 2>/dev/null || true
+  wait "$backend_pid" 2>/dev/null || true
+done
+
+echo "Fake LLM: $(curl -fsS "http://127.0.0.1:$llm_port/stats")"
+exit "$status"
@@ -0,0 +1,145 @@
+#!/usr/bin/env python3
+"""Drives N concurrent submissions through the backend API and reports the results.
+
+Submits tasks to /api/parser/analyze from --concurrency client threads, polls each task
+until it completes or fails, then reads every task's stage trace and the backend's
+Micrometer metrics (/actuator/metrics). Prints a summary and, with --report, writes the
+full numbers as JSON so runs can be compared.
+"""
+import argparse
+import json
+import statistics
+import sys
+import time
+import urllib.error
+import urllib.parse
+import urllib.request
+from concurrent.futures import ThreadPoolExecutor
+
+TERMINAL = ("completed", "failed")
+
+
+def call(base, path, payload=None, timeout=30):
+    data = None if payload is None else json.dumps(payload).encode("utf-8")
+    request = urllib.request.Request(base + path, data=data, method="GET" if data is None else "POST",
+                                     headers={"Content-Type": "application/json"})
+    with urllib.request.urlopen(request, timeout=timeout) as response:
+        return json.loads(response.read() or b"null")
+
+
+def metric(base, name, tags=None):
+    query = "".join("&tag=" + urllib.parse.quote(f"{k}:{v}") for k, v in (tags or {}).items())
+    try:
+        body = call(base, f"/actuator/metrics/{name}?{query.lstrip('&')}")
+    except urllib.error.HTTPError:
+        return None
+    values = {m["statistic"]: m["value"] for m in body.get("measurements", [])}
+    tag_values = {t["tag"]: t["values"] for t in body.get("availableTags", [])}
+    return {"values": values, "tags": tag_values}
+
+
+def percentile(values, p):
+    if not values:
+        return 0
+    ordered = sorted(values)
+    return ordered[min(len(ordered) - 1, int(round(p * (len(ordered) - 1))))]
+
+
+def run_task(base, url, poll_interval):
+    started = time.time()
+    task_id = call(base, "/api/parser/analyze", {"url": url})["taskId"]
+    status = {}
+    while True:
+        status = call(base, f"/api/parser/status/{task_id}")
+        if status.get("status") in TERMINAL:
+            break
+        time.sleep(poll_interval)
+    finished = time.time()
+    try:
+        trace = call(base, f"/api/parser/tasks/{task_id}/trace")
+    except urllib.error.HTTPError:
+        trace = None
+    return {"taskId": task_id, "url": url, "status": status.get("status"), "error": status.get("error"),
+            "seconds": finished - started, "trace": trace}
+
+
+def main():
+    parser = argparse.ArgumentParser(description=__doc__.splitlines()[0])
+    parser.add_argument("--base-url", default="http://127.0.0.1:9090")
+    parser.add_argument("--tasks", type=int, default=50)
+    parser.add_argument("--concurrency", type=int, default=10)
+    parser.add_argument("--poll-interval", type=float, default=0.5)
+    parser.add_argument("--label", default="")
+    parser.add_argument("--run-id", default=str(int(time.time())))
+    parser.add_argument("--report")
+    args = parser.parse_args()
+
+    # 11-character ids so the backend treats them as YouTube videos and keys storage by id
+    urls = [f"https://www.youtube.com/watch?v=b{args.run_id[-4:]}{i:06d}" for i in range(args.tasks)]
+    began = time.time()
+    with ThreadPoolExecutor(max_workers=args.concurrency) as pool:
+        results = list(pool.map(lambda url: run_task(args.base_url, url, args.poll_interval), urls))
+    elapsed = time.time() - began
+
+    completed = [r for r in results if r["status"] == "completed"]
+    stage_ms = {}
+    for r in completed:
+        for stage in (r["trace"] or {}).get("stages", []):
+            stage_ms.setdefault(stage["stage"], []).append(stage["durationMs"])
+
+    repository = {}
+    ops = metric(args.base_url, "velp.repository.operations")
+    for operation in (ops or {}).get("tags", {}).get("operation", []):
+        m = metric(args.base_url, "velp.repository.operations", {"operation": operation})["values"]
+        repository[operation] = {"count": m.get("COUNT", 0),
+                                 "meanMs": 1000 * m.get("TOTAL_TIME", 0) / max(1, m.get("COUNT", 0)),
+                                 "maxMs": 1000 * m.get("MAX", 0)}
+    heap = metric(args.base_url, "jvm.memory.used", {"area": "heap"})
+    heap_max = metric(args.base_url, "jvm.memory.max", {"area": "heap"})
+    gc = metric(args.base_url, "jvm.gc.pause")
+    cache_hit = metric(args.base_url, "velp.translation.cache", {"result": "hit"})
+    cache_miss = metric(args.base_url, "velp.translation.cache", {"result": "miss"})
+
+    report = {
+        "label": args.label,
+        "tasks": args.tasks,
+        "concurrency": args.concurrency,
+        "completed": len(completed),
+        "failed": len(results) - len(completed),
+        "elapsedSeconds": elapsed,
+        "tasksPerMinute": 60 * len(completed) / elapsed if elapsed else 0,
+        "taskSeconds": {"p50": percentile([r["seconds"] for r in completed], 0.5),
+                        "p95": percentile([r["seconds"] for r in completed], 0.95)},
+        "stagesMs": {name: {"count": len(v), "mean": statistics.mean(v),
+                            "p50": percentile(v, 0.5), "p95": percentile(v, 0.95), "max": max(v)}
+                     for name, v in stage_ms.items()},
+        "repository": repository,
+        "heapUsedMb": (heap or {}).get("values", {}).get("VALUE", 0) / 1048576,
+        "heapMaxMb": (heap_max or {}).get("values", {}).get("VALUE", 0) / 1048576,
+        "gcPauses": (gc or {}).get("values", {}).get("COUNT", 0),
+        "gcPauseTotalMs": 1000 * (gc or {}).get("values", {}).get("TOTAL_TIME", 0),
+        "gcPauseMaxMs": 1000 * (gc or {}).get("values", {}).get("MAX", 0),
+        "translationCache": {"hits": (cache_hit or {}).get("values", {}).get("COUNT", 0),
+                             "misses": (cache_miss or {}).get("values", {}).get("COUNT", 0)},
+        "errors": sorted({r["error"] for r in results if r["status"] != "completed" and r["error"]}),
+    }
+
+    print(f"== {args.label or args.base_url}: {report['completed']}/{args.tasks} completed, "
+          f"{report['failed']} failed in {elapsed:.1f}s ({report['tasksPerMinute']:.1f} tasks/min)")
+    print(f"   task latency p50 {report['taskSeconds']['p50']:.1f}s  p95 {report['taskSeconds']['p95']:.1f}s")
+    for name, s in report["stagesMs"].items():
+        print(f"   stage {name:<10} mean {s['mean']:8.0f}ms  p50 {s['p50']:8.0f}ms  p95 {s['p95']:8.0f}ms  max {s['max']:8.0f}ms")
+    for operation, s in sorted(report["repository"].items()):
+        print(f"   repo  {operation:<24} {s['count']:8.0f} ops  mean {s['meanMs']:6.2f}ms  max {s['maxMs']:6.2f}ms")
+    print(f"   heap {report['heapUsedMb']:.0f}/{report['heapMaxMb']:.0f} MB, GC {report['gcPauses']:.0f} pauses "
+          f"totalling {report['gcPauseTotalMs']:.0f}ms (max {report['gcPauseMaxMs']:.0f}ms)")
+    for error in report["errors"]:
+        print(f"   error: {error}")
+    if args.report:
+        with open(args.report, "w", encoding="utf-8") as out:
+            json.dump({**report, "results": results}, out, ensure_ascii=False, indent=2)
+    return 0 if report["failed"] == 0 else 1
+
+
+if __name__ == "__main__":
+    sys.exit(main())